@@ -0,0 +1,55 @@
+package engine.core;
+
+// Fixed-timestep accumulator: elapsed real time is banked and paid out in ticks of exactly 1 / tickRate
+// seconds, at most maxTicksPerAdvance at a time. Time beyond that is dropped, so a stall (GC pause, window
+// drag) costs a bounded burst of ticks instead of one huge step or a backlog that never catches up.
+public class FixedStepClock {
+    private final double step;
+    private final int maxTicksPerAdvance;
+    private double accumulator;
+    private double droppedTime;
+    private long tickCount;
+
+    public FixedStepClock(double tickRate, int maxTicksPerAdvance) {
+        this.step = 1.0 / tickRate;
+        this.maxTicksPerAdvance = Math.max(1, maxTicksPerAdvance);
+    }
+
+    // Banks elapsed seconds and returns how many ticks of getStep() are due now
+    public int advance(double elapsed) {
+        accumulator += elapsed;
+        int due = (int) Math.min(maxTicksPerAdvance, Math.floor(accumulator / step));
+        accumulator -= due * step;
+
+        // Whole ticks that did not fit are dropped, the fraction of the next one is kept
+        if (accumulator >= step) {
+            double excess = accumulator - accumulator % step;
+            droppedTime += excess;
+            accumulator -= excess;
+        }
+        tickCount += due;
+        return due;
+    }
+
+    public double getStep() {
+        return step;
+    }
+
+    // How far real time is into the next tick, 0 to 1; render states blend the last two ticks by it
+    public double getAlpha() {
+        return accumulator / step;
+    }
+
+    public double getSecondsUntilNextTick() {
+        return step - accumulator;
+    }
+
+    // Real time that was never simulated because of the catch-up limit
+    public double getDroppedTime() {
+        return droppedTime;
+    }
+
+    public long getTickCount() {
+        return tickCount;
+    }
+}
@@ -0,0 +1,47 @@
+package engine.math;
+
+// Rotation by a fixed angle stored as the unit complex number cos + i*sin. Applying it is a complex
+// multiplication, so after construction no angles or trigonometric functions are involved.
+public class Rotation2D {
+    public double cos = 1.0, sin = 0.0;
+    private double angle = 0.0;
+
+    public Rotation2D() {}
+
+    public Rotation2D(double angle) {
+        setAngle(angle);
+    }
+
+    // Angle in radians; cos and sin are only recomputed when it changes
+    public Rotation2D setAngle(double angle) {
+        if (angle != this.angle) {
+            this.angle = angle;
+            this.cos = Math.cos(angle);
+            this.sin = Math.sin(angle);
+        }
+        return this;
+    }
+
+    public double getAngle() {
+        return angle;
+    }
+
+    // (x, y) rotated counterclockwise by the angle
+    public Vector2D rotate(double x, double y, Vector2D out) {
+        return out.set(cos * x - sin * y, sin * x + cos * y);
+    }
+
+    // Turns unit vector from towards unit vector to by at most the angle (0 to pi), in whichever direction is
+    // shorter. The angle test compares the dot product with cos, the direction comes from the sign of the
+    // cross product. Opposite vectors turn counterclockwise.
+    public Vector2D turnTowards(double fromX, double fromY, double toX, double toY, Vector2D out) {
+        double dot = fromX * toX + fromY * toY;
+        if (dot >= cos) {
+            return out.set(toX, toY);
+        }
+
+        double cross = fromX * toY - fromY * toX;
+        double s = (cross < 0) ? -sin : sin;
+        return out.set(cos * fromX - s * fromY, s * fromX + cos * fromY);
+    }
+}
@@ -35,6 +35,25 @@ public class Vector2D {
         setY(vec.y);
     }
 
+    public Vector2D set(double x, double y) {
+        this.x = x;
+        this.y = y;
+        return this;
+    }
+
+    public Vector2D add(double x, double y) {
+        this.x += x;
+        this.y += y;
+        return this;
+    }
+
+    // this += vec * s
+    public Vector2D addScaled(Vector2D vec, double s) {
+        x += vec.x * s;
+        y += vec.y * s;
+        return this;
+    }
+
     public void add(Vector2D vec1) {
         x += vec1.x;
         y += vec1.y;
@@ -89,7 +108,18 @@ public class Vector2D {
             throw new ArithmeticException("Vector length is zero. Cannot normalize.");
         }
 
-        setPosition(linearAlgebra.div(this, length));
+        x /= length;
+        y /= length;
+    }
+
+    // Normalizes unless this is a null vector, which stays unchanged
+    public Vector2D normalizeSafe() {
+        double length = this.length();
+        if (length > 0) {
+            x /= length;
+            y /= length;
+        }
+        return this;
     }
 
     public void truncate(double max) {
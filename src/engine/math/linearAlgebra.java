@@ -76,7 +76,7 @@ public class linearAlgebra {
     }
 
     public static double euclideanDistance(Vector2D vec1, Vector2D vec2) {
-        return length(sub(vec2, vec1));
+        return distance(vec1.x, vec1.y, vec2.x, vec2.y);
     }
 
     public static double euclideanDistance(Vector3D vec1, Vector3D vec2) {
@@ -177,9 +177,62 @@ public class linearAlgebra {
                 Math.sin(rad) * vec.x + Math.cos(rad) * vec.y));
     }
 
+    // Rotated by 90 degrees counterclockwise, an exact swap instead of rotate(vec, 90)
     public static Vector2D vertical(Vector2D vec) {
-        Vector2D newVec = new Vector2D(vec);
-        return rotate(newVec, 90);
+        return new Vector2D(-vec.y, vec.x);
+    }
+
+    // Allocation-free variants: the result is written into out (which may be one of the inputs) and returned
+
+    public static Vector2D add(Vector2D vec1, Vector2D vec2, Vector2D out) {
+        return out.set(vec1.x + vec2.x, vec1.y + vec2.y);
+    }
+
+    public static Vector2D sub(Vector2D vec1, Vector2D vec2, Vector2D out) {
+        return out.set(vec1.x - vec2.x, vec1.y - vec2.y);
+    }
+
+    public static Vector2D mult(Vector2D vec, double s, Vector2D out) {
+        return out.set(vec.x * s, vec.y * s);
+    }
+
+    public static Vector2D div(Vector2D vec, double s, Vector2D out) {
+        return (s != 0) ? out.set(vec.x / s, vec.y / s) : out.set(0, 0);
+    }
+
+    public static Vector2D truncate(Vector2D vec, double max, Vector2D out) {
+        out.set(vec.x, vec.y);
+        out.truncate(max);
+        return out;
+    }
+
+    public static Vector2D rotate(Vector2D vec, double degree, Vector2D out) {
+        double rad = degreeToRad(degree);
+        double cos = Math.cos(rad), sin = Math.sin(rad);
+        return out.set(cos * vec.x - sin * vec.y, sin * vec.x + cos * vec.y);
+    }
+
+    public static Vector2D vertical(Vector2D vec, Vector2D out) {
+        return out.set(-vec.y, vec.x);
+    }
+
+    // Scalar variants on coordinates, no vectors involved
+
+    public static double lengthSquare(double x, double y) {
+        return x * x + y * y;
+    }
+
+    public static double length(double x, double y) {
+        return Math.sqrt(x * x + y * y);
+    }
+
+    public static double distanceSq(double ax, double ay, double bx, double by) {
+        double dx = bx - ax, dy = by - ay;
+        return dx * dx + dy * dy;
+    }
+
+    public static double distance(double ax, double ay, double bx, double by) {
+        return Math.sqrt(distanceSq(ax, ay, bx, by));
     }
 
     public static double clamp(double x, double min, double max) {
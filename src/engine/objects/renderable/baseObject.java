@@ -4,7 +4,8 @@ import engine.math.Vector2D;
 
 public abstract class baseObject {
     public int id;
-    public Vector2D position;
+    // Only through getPosition/setPosition, so subclasses can keep the position elsewhere
+    private Vector2D position;
 
     public baseObject() {
         this(new Vector2D(0, 0));
@@ -0,0 +1,194 @@
+package engine.rendering;
+
+import engine.rendering.shaders.ShaderUtilities;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GLContext;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL31.glDrawArraysInstanced;
+import static org.lwjgl.opengl.GL33.glVertexAttribDivisor;
+
+// Draws all mosquitos with two instanced draw calls. The instance data is a float buffer with
+// x, y, velocityX, velocityY per mosquito (stride in bytes given to render), uploaded as it is; the shader
+// turns the shape of renderMosquito along the velocity. Without OpenGL 3.3 it falls back to
+// PrimitiveRenderer.renderMosquito per instance. Needs a current GL context when constructed.
+public class MosquitoInstanceRenderer {
+    private static final String VERTEX_SHADER =
+            "#version 120\n" +
+            "attribute vec2 vertex;\n" +
+            "attribute vec4 instance;\n" +
+            "void main() {\n" +
+            "    float speed = length(instance.zw);\n" +
+            "    vec2 direction = speed > 0.0 ? instance.zw / speed : vec2(1.0, 0.0);\n" +
+            "    vec2 turned = vec2(vertex.x * direction.x - vertex.y * direction.y,\n" +
+            "                       vertex.x * direction.y + vertex.y * direction.x);\n" +
+            "    gl_Position = gl_ModelViewProjectionMatrix * vec4(instance.xy + turned, 0.0, 1.0);\n" +
+            "    gl_FrontColor = gl_Color;\n" +
+            "}\n";
+
+    private static final String FRAGMENT_SHADER =
+            "#version 120\n" +
+            "void main() {\n" +
+            "    gl_FragColor = gl_Color;\n" +
+            "}\n";
+
+    private final float size;
+    private final boolean instanced;
+    private int program;
+    private int vertexAttribute;
+    private int instanceAttribute;
+    private int shapeBuffer;
+    private int instanceBuffer;
+    private int triangleVertices;
+    private int lineVertices;
+    private long instanceBufferBytes;
+
+    public MosquitoInstanceRenderer(float size) {
+        this.size = size;
+        this.instanced = GLContext.getCapabilities().OpenGL33;
+        if (!instanced) return;
+
+        program = ShaderUtilities.createProgram(VERTEX_SHADER, FRAGMENT_SHADER);
+        vertexAttribute = glGetAttribLocation(program, "vertex");
+        instanceAttribute = glGetAttribLocation(program, "instance");
+
+        // Triangles first, then lines, in one buffer
+        List<Float> triangles = new ArrayList<>();
+        List<Float> lines = new ArrayList<>();
+        buildShape(triangles, lines);
+        triangleVertices = triangles.size() / 2;
+        lineVertices = lines.size() / 2;
+
+        FloatBuffer shape = BufferUtils.createFloatBuffer(triangles.size() + lines.size());
+        for (float value : triangles) shape.put(value);
+        for (float value : lines) shape.put(value);
+        shape.flip();
+
+        shapeBuffer = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, shapeBuffer);
+        glBufferData(GL_ARRAY_BUFFER, shape, GL_STATIC_DRAW);
+        instanceBuffer = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    // Draws the first count instances; the buffer's position and limit are restored afterwards
+    public void render(FloatBuffer instances, int count, int strideBytes) {
+        if (count == 0) return;
+        int floatsPerInstance = strideBytes / Float.BYTES;
+
+        if (!instanced) {
+            for (int i = 0; i < count; i++) {
+                int base = i * floatsPerInstance;
+                PrimitiveRenderer.renderMosquito(instances.get(base), instances.get(base + 1), size,
+                        instances.get(base + 2), instances.get(base + 3));
+            }
+            return;
+        }
+
+        int position = instances.position();
+        int limit = instances.limit();
+        instances.position(0).limit(count * floatsPerInstance);
+
+        // Orphan the old storage when the size changes, so the driver need not wait for the last frame
+        glBindBuffer(GL_ARRAY_BUFFER, instanceBuffer);
+        long bytes = (long) count * strideBytes;
+        if (bytes != instanceBufferBytes) {
+            glBufferData(GL_ARRAY_BUFFER, bytes, GL_STREAM_DRAW);
+            instanceBufferBytes = bytes;
+        }
+        glBufferSubData(GL_ARRAY_BUFFER, 0, instances);
+        instances.limit(limit).position(position);
+
+        glUseProgram(program);
+        glEnableVertexAttribArray(instanceAttribute);
+        glVertexAttribPointer(instanceAttribute, 4, GL_FLOAT, false, strideBytes, 0);
+        glVertexAttribDivisor(instanceAttribute, 1);
+
+        glBindBuffer(GL_ARRAY_BUFFER, shapeBuffer);
+        glEnableVertexAttribArray(vertexAttribute);
+        glVertexAttribPointer(vertexAttribute, 2, GL_FLOAT, false, 0, 0);
+
+        glDrawArraysInstanced(GL_TRIANGLES, 0, triangleVertices, count);
+        glDrawArraysInstanced(GL_LINES, triangleVertices, lineVertices, count);
+
+        glVertexAttribDivisor(instanceAttribute, 0);
+        glDisableVertexAttribArray(instanceAttribute);
+        glDisableVertexAttribArray(vertexAttribute);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        glUseProgram(0);
+    }
+
+    public boolean isInstanced() {
+        return instanced;
+    }
+
+    public void destroy() {
+        if (!instanced) return;
+        glDeleteBuffers(shapeBuffer);
+        glDeleteBuffers(instanceBuffer);
+        glDeleteProgram(program);
+    }
+
+    // Same geometry as PrimitiveRenderer.renderMosquito, with the fans split into triangles
+    private void buildShape(List<Float> triangles, List<Float> lines) {
+        float bodyLength = size * 1.2f;
+        float bodyWidth = size * 0.3f;
+        float wingLength = size * 0.8f;
+        float wingWidth = size * 0.4f;
+
+        for (int side = 1; side >= -1; side -= 2) {
+            addFan(triangles, new float[]{
+                    -bodyLength * 0.1f, side * bodyWidth * 0.5f,
+                    -wingLength * 0.3f, side * (wingWidth + bodyWidth * 0.5f),
+                    -wingLength * 0.8f, side * (wingWidth * 0.8f + bodyWidth * 0.5f),
+                    -wingLength * 0.9f, side * bodyWidth * 0.2f,
+                    -wingLength * 0.6f, side * bodyWidth * 0.3f
+            });
+        }
+
+        float[] legs = {
+                bodyLength * 0.2f, bodyWidth * 0.5f, bodyLength * 0.1f, bodyWidth * 1.2f,
+                bodyLength * 0.2f, -bodyWidth * 0.5f, bodyLength * 0.1f, -bodyWidth * 1.2f,
+                -bodyLength * 0.1f, bodyWidth * 0.5f, -bodyLength * 0.2f, bodyWidth * 1.3f,
+                -bodyLength * 0.1f, -bodyWidth * 0.5f, -bodyLength * 0.2f, -bodyWidth * 1.3f,
+                -bodyLength * 0.4f, bodyWidth * 0.5f, -bodyLength * 0.5f, bodyWidth * 1.1f,
+                -bodyLength * 0.4f, -bodyWidth * 0.5f, -bodyLength * 0.5f, -bodyWidth * 1.1f,
+                bodyLength * 0.45f, bodyWidth * 0.2f, bodyLength * 0.6f, bodyWidth * 0.4f,
+                bodyLength * 0.45f, -bodyWidth * 0.2f, bodyLength * 0.6f, -bodyWidth * 0.4f
+        };
+        for (float value : legs) lines.add(value);
+
+        addEllipse(triangles, -bodyLength * 0.2f, bodyLength * 0.5f, bodyWidth * 0.5f, 8);
+        addEllipse(triangles, bodyLength * 0.1f, bodyLength * 0.3f, bodyWidth * 0.4f, 8);
+        addEllipse(triangles, bodyLength * 0.45f, bodyWidth * 0.6f, bodyWidth * 0.6f, 6);
+    }
+
+    private static void addEllipse(List<Float> triangles, float centerX, float radiusX, float radiusY, int segments) {
+        float[] fan = new float[(segments + 2) * 2];
+        fan[0] = centerX;
+        fan[1] = 0;
+        for (int i = 0; i <= segments; i++) {
+            double angle = Math.PI * 2 * i / segments;
+            fan[2 + i * 2] = centerX + (float) Math.cos(angle) * radiusX;
+            fan[3 + i * 2] = (float) Math.sin(angle) * radiusY;
+        }
+        addFan(triangles, fan);
+    }
+
+    private static void addFan(List<Float> triangles, float[] fan) {
+        for (int i = 1; i + 1 < fan.length / 2; i++) {
+            triangles.add(fan[0]);
+            triangles.add(fan[1]);
+            triangles.add(fan[i * 2]);
+            triangles.add(fan[i * 2 + 1]);
+            triangles.add(fan[i * 2 + 2]);
+            triangles.add(fan[i * 2 + 3]);
+        }
+    }
+}
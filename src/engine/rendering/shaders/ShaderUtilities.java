@@ -1,4 +1,41 @@
 package engine.rendering.shaders;
 
+import static org.lwjgl.opengl.GL11.GL_FALSE;
+import static org.lwjgl.opengl.GL20.*;
+
 public class ShaderUtilities {
+    private ShaderUtilities() {}
+
+    // Compiles and links both stages, throws with the driver's log if either step fails
+    public static int createProgram(String vertexSource, String fragmentSource) {
+        int vertexShader = compileShader(GL_VERTEX_SHADER, vertexSource);
+        int fragmentShader = compileShader(GL_FRAGMENT_SHADER, fragmentSource);
+
+        int program = glCreateProgram();
+        glAttachShader(program, vertexShader);
+        glAttachShader(program, fragmentShader);
+        glLinkProgram(program);
+        glDeleteShader(vertexShader);
+        glDeleteShader(fragmentShader);
+
+        if (glGetProgrami(program, GL_LINK_STATUS) == GL_FALSE) {
+            String log = glGetProgramInfoLog(program, 4096);
+            glDeleteProgram(program);
+            throw new IllegalStateException("Shader program failed to link: " + log);
+        }
+        return program;
+    }
+
+    public static int compileShader(int type, String source) {
+        int shader = glCreateShader(type);
+        glShaderSource(shader, source);
+        glCompileShader(shader);
+
+        if (glGetShaderi(shader, GL_COMPILE_STATUS) == GL_FALSE) {
+            String log = glGetShaderInfoLog(shader, 4096);
+            glDeleteShader(shader);
+            throw new IllegalStateException("Shader failed to compile: " + log);
+        }
+        return shader;
+    }
 }
@@ -2,56 +2,34 @@ package main;
 
 import engine.core.Renderer;
 import engine.core.Window;
-import engine.math.Vector2D;
-import engine.math.linearAlgebra;
+import engine.rendering.MosquitoInstanceRenderer;
 import org.lwjgl.input.Mouse;
 import org.lwjgl.opengl.Display;
-import simulation.agents.Agent;
-import simulation.agents.AgentBuilder;
+import simulation.agents.AgentRenderBuffer;
 import simulation.agents.SimulationConstants;
-import simulation.environment.LightSource;
-import simulation.environment.LightSourceManager;
-import simulation.environment.WindManager;
-
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
+import simulation.agents.SimulationSnapshot;
 
+// The GL thread: polls input for the SimulationLoop and draws the latest snapshot it published, at
+// RENDER_FPS, blending the agents between the snapshot's last two ticks when RENDER_INTERPOLATION is on.
+// The simulation ticks on its own thread, so a slow frame does not slow it down and a slow tick only shows
+// the previous snapshot again.
 public class SimulationApplication extends Window {
-    private List<Agent> mosquitos;
-    private Random random;
+    private final SimulationLoop simulation;
+    private MosquitoInstanceRenderer mosquitoRenderer;
+    private final AgentRenderBuffer interpolated =
+            new AgentRenderBuffer(SimulationConstants.DEFAULT_MOSQUITO_COUNT);
     private long lastTime;
-
-    // Wind tracking
-    private Vector2D currentMousePosition = new Vector2D();
+    private double statisticsTimer;
+    private int framesSinceStatistics;
 
     public SimulationApplication() {
         super("Mückenschwarm Simulation",
                 SimulationConstants.DEFAULT_WINDOW_WIDTH,
                 SimulationConstants.DEFAULT_WINDOW_HEIGHT);
 
-        mosquitos = new ArrayList<>();
-        random = new Random();
+        simulation = new SimulationLoop(WIDTH, HEIGHT);
         initDisplay();
-        initMosquitos();
-    }
-
-    private void initMosquitos() {
-        mosquitos = new ArrayList<>();
-
-        for (int i = 0; i < SimulationConstants.DEFAULT_MOSQUITO_COUNT; i++) {
-            Vector2D randomPos = new Vector2D(
-                    random.nextDouble() * WIDTH,
-                    random.nextDouble() * HEIGHT
-            );
-
-            Agent mosquito = new AgentBuilder()
-                    .position(randomPos)
-                    .worldBounds(WIDTH, HEIGHT)
-                    .build();
-
-            mosquitos.add(mosquito);
-        }
+        mosquitoRenderer = new MosquitoInstanceRenderer(SimulationConstants.MOSQUITO_SIZE);
     }
 
     public void start() {
@@ -63,116 +41,94 @@ public class SimulationApplication extends Window {
         // Zurück zu 2D-Rendering
         Renderer.init2D(WIDTH, HEIGHT);
         lastTime = System.nanoTime();
+        simulation.start();
 
         while (!Display.isCloseRequested()) {
             long currentTime = System.nanoTime();
             double deltaTime = (currentTime - lastTime) / 1_000_000_000.0;
             lastTime = currentTime;
 
-            handleInput(deltaTime);
-            update(deltaTime);
-            render();
+            handleInput();
+            render(simulation.getSnapshots().acquire());
+            updateStatistics(deltaTime);
 
             Display.update();
-            Display.sync(60);
+            Display.sync(SimulationConstants.RENDER_FPS);
         }
 
+        simulation.stop();
+        mosquitoRenderer.destroy();
         Display.destroy();
     }
 
-    private void handleInput(double deltaTime) {
-        // Update mouse position
+    // Mouse state for the simulation thread, which turns it into wind, lights and hatching sites
+    private void handleInput() {
         int mouseX = Mouse.getX();
         int mouseY = HEIGHT - Mouse.getY(); // LWJGL Y-coordinate conversion
-        currentMousePosition = new Vector2D(mouseX, mouseY);
-
-        // Left click + mouse movement creates wind
-        boolean leftMousePressed = Mouse.isButtonDown(0);
-        WindManager.updateWind(currentMousePosition, leftMousePressed, deltaTime);
-
-        // Right click for light sources - now smaller!
-        if (Mouse.isButtonDown(1)) {
-            LightSource newLight = new LightSource(
-                    new Vector2D(currentMousePosition),
-                    60.0,
-                    25.0
-            );
-            LightSourceManager.addLightSource(newLight);
-        }
+        simulation.setInput(mouseX, mouseY, Mouse.isButtonDown(0), Mouse.isButtonDown(1), Mouse.isButtonDown(2));
     }
 
-    private void update(double deltaTime) {
-        // Update light sources for flickering
-        LightSourceManager.updateAll(deltaTime);
-
-        // Update each mosquito
-        for (Agent mosquito : mosquitos) {
-            List<Agent> neighbors = findNeighbors(mosquito);
-            mosquito.update(deltaTime, neighbors, currentMousePosition);
-        }
+    // Simulation ticks and rendered frames per second are counted separately
+    private void updateStatistics(double deltaTime) {
+        framesSinceStatistics++;
+        statisticsTimer += deltaTime;
+        if (statisticsTimer < 1.0) return;
+        double framesPerSecond = framesSinceStatistics / statisticsTimer;
+        framesSinceStatistics = 0;
+        statisticsTimer = 0.0;
+
+        Display.setTitle(String.format("%s | tps: %.0f | fps: %.0f%s", TITLE,
+                simulation.getTicksPerSecond(), framesPerSecond, simulation.getStatistics()));
     }
 
-    private List<Agent> findNeighbors(Agent agent) {
-        List<Agent> neighbors = new ArrayList<>();
-
-        for (Agent other : mosquitos) {
-            if (other != agent && agent.canSee(other)) {
-                neighbors.add(other);
-            }
-        }
-
-        return neighbors;
-    }
-
-    private void render() {
+    private void render(SimulationSnapshot snapshot) {
         Renderer.clearBuffers();
         Renderer.clearBackgroundWithColor(0.1f, 0.1f, 0.2f, 1.0f);
 
         // Render wind visualization
-        renderWindVisualization();
+        renderWindVisualization(snapshot);
 
         // Render light sources
-        LightSourceManager.renderAll();
+        snapshot.renderLights();
 
         // Render mosquitos
+        // Straight from an off-heap render buffer, no per-agent objects
+        AgentRenderBuffer agents = SimulationConstants.RENDER_INTERPOLATION
+                ? snapshot.interpolate(System.nanoTime(), interpolated) : snapshot.getAgents();
         Renderer.setColor(0.3f, 0.2f, 0.1f, 0.9f);
-        for (Agent mosquito : mosquitos) {
-            mosquito.render();
-        }
+        mosquitoRenderer.render(agents.getFloats(), snapshot.getAgentCount(), AgentRenderBuffer.STRIDE_BYTES);
 
         Renderer.resetColor();
     }
 
 
-    private void renderWindVisualization() {
-        if (WindManager.hasWind()) {
-            Vector2D windDir = WindManager.getWindDirection();
-            double windStrength = WindManager.getWindStrength();
-
-            if (!windDir.isNullvector() && windStrength > 5.0) {
-                // Draw wind indicator at mouse position
-                Renderer.setColor(0.3f, 0.6f, 1.0f, 0.7f);
+    private void renderWindVisualization(SimulationSnapshot snapshot) {
+        double windStrength = snapshot.getWindStrength();
+        if (windStrength > 5.0) {
+            // Draw wind indicator at mouse position
+            Renderer.setColor(0.3f, 0.6f, 1.0f, 0.7f);
 
-                Vector2D windEnd = linearAlgebra.add(currentMousePosition,
-                        linearAlgebra.mult(windDir, windStrength * 0.5));
+            // Wind vector is direction times strength, the arrow is half of it
+            double mouseX = snapshot.getMouseX(), mouseY = snapshot.getMouseY();
+            double windEndX = mouseX + snapshot.getWindX() * 0.5;
+            double windEndY = mouseY + snapshot.getWindY() * 0.5;
 
-                // Draw wind arrow
-                engine.rendering.PrimitiveRenderer.renderLine2D(
-                        (float) currentMousePosition.x, (float) currentMousePosition.y,
-                        (float) windEnd.x, (float) windEnd.y
-                );
+            // Draw wind arrow
+            engine.rendering.PrimitiveRenderer.renderLine2D(
+                    (float) mouseX, (float) mouseY,
+                    (float) windEndX, (float) windEndY
+            );
 
-                // Draw wind circle to show affected area
-                Renderer.setColor(0.3f, 0.6f, 1.0f, 0.2f);
-                engine.rendering.PrimitiveRenderer.renderCircleOutline(
-                        (float) currentMousePosition.x, (float) currentMousePosition.y,
-                        100, 16
-                );
-            }
+            // Draw wind circle to show affected area
+            Renderer.setColor(0.3f, 0.6f, 1.0f, 0.2f);
+            engine.rendering.PrimitiveRenderer.renderCircleOutline(
+                    (float) mouseX, (float) mouseY,
+                    100, 16
+            );
         }
     }
 
     public static void main(String[] args) {
         new SimulationApplication().start();
     }
-}
\ No newline at end of file
+}
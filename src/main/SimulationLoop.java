@@ -0,0 +1,373 @@
+package main;
+
+import engine.core.FixedStepClock;
+import engine.math.Vector2D;
+import simulation.agents.Agent;
+import simulation.agents.AgentBuilder;
+import simulation.agents.AgentEmitter;
+import simulation.agents.AgentPopulation;
+import simulation.agents.AgentRenderBuffer;
+import simulation.agents.AgentStore;
+import simulation.agents.RandomStreams;
+import simulation.agents.SimulationConstants;
+import simulation.agents.SnapshotBuffer;
+import simulation.behaviors.BehaviorBuckets;
+import simulation.behaviors.CollisionResolver;
+import simulation.behaviors.FarFieldCohesion;
+import simulation.behaviors.PairForces;
+import simulation.behaviors.ParallelTick;
+import simulation.environment.LightSource;
+import simulation.environment.LightSourceManager;
+import simulation.environment.WindManager;
+import simulation.spatial.BruteForceIndex;
+import simulation.spatial.KNearestIndex;
+import simulation.spatial.MortonOrder;
+import simulation.spatial.NeighborBuffer;
+import simulation.spatial.NeighborIndex;
+import simulation.spatial.PairIndex;
+import simulation.spatial.QuadTree;
+import simulation.spatial.SpatialGrid;
+import simulation.spatial.SweepAndPrune;
+import simulation.spatial.VerletNeighborList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.IntPredicate;
+import java.util.concurrent.locks.LockSupport;
+
+// The simulation on its own thread. It runs fixed ticks of 1 / SIMULATION_TICK_RATE seconds paced by a
+// FixedStepClock, applies the input the render thread hands over with setInput, and publishes the state after
+// each batch of ticks into a SnapshotBuffer. All simulation state, including the static light and wind
+// managers, is only touched from this thread once it runs.
+public class SimulationLoop implements Runnable {
+    private final int width, height;
+    private final SnapshotBuffer snapshots;
+    private final FixedStepClock clock;
+    // Render floats of the current slots before the last tick, for interpolation
+    private final AgentRenderBuffer previousState;
+
+    private List<Agent> mosquitos;
+    private AgentStore store;
+    private AgentPopulation population;
+    private NeighborIndex neighborIndex;
+    // The same index when it can enumerate pairs, otherwise null
+    private PairIndex pairIndex;
+    private VerletNeighborList neighborList;
+    private final MortonOrder mortonOrder;
+    private final PairForces pairForces;
+    private FarFieldCohesion farField;
+    private CollisionResolver collisions;
+    private final NeighborBuffer neighborBuffer;
+    private final ParallelTick parallelTick;
+    private BehaviorBuckets buckets;
+    // Neighbor rows are only needed for the agents whose bucket is due
+    private IntPredicate dueRows;
+    private final RandomStreams randomStreams;
+    private final SplittableRandom random;
+    private long tickCount;
+    private boolean middleMouseWasDown;
+    private final Vector2D currentMousePosition = new Vector2D();
+
+    // Input from the render thread, taken over at the start of each tick
+    private volatile double inputMouseX, inputMouseY;
+    private volatile boolean leftMouseDown, rightMouseDown, middleMouseDown;
+
+    private Thread thread;
+    private volatile boolean running;
+
+    // Metrics, read by the render thread
+    private double statisticsTimer;
+    private int ticksSinceStatistics;
+    private volatile double ticksPerSecond;
+    private volatile String statistics = "";
+
+    public SimulationLoop(int width, int height) {
+        this(width, height, SimulationConstants.DEFAULT_MOSQUITO_COUNT, SimulationConstants.SIMULATION_WORKERS,
+                SimulationConstants.RANDOM_SEED);
+    }
+
+    // seed 0 picks a new one, see RANDOM_SEED
+    public SimulationLoop(int width, int height, int mosquitoCount, int workers, long seed) {
+        this.width = width;
+        this.height = height;
+
+        // Split in a fixed order, so a fixed seed reproduces the run
+        randomStreams = new RandomStreams(seed);
+        random = randomStreams.split();
+        neighborIndex = createNeighborIndex();
+        if (neighborIndex instanceof PairIndex) {
+            pairIndex = (PairIndex) neighborIndex;
+        }
+        if (SimulationConstants.NEIGHBOR_LIST_SKIN > 0 && pairIndex != null) {
+            neighborList = new VerletNeighborList(pairIndex, SimulationConstants.NEIGHBOR_LIST_SKIN, width, height);
+            neighborIndex = neighborList;
+            pairIndex = neighborList;
+        }
+        mortonOrder = new MortonOrder(width, height);
+        pairForces = new PairForces(workers);
+        parallelTick = new ParallelTick(workers);
+        neighborBuffer = new NeighborBuffer(SimulationConstants.MAX_SAMPLED_NEIGHBORS);
+        if (SimulationConstants.FAR_COHESION_RADIUS > 0) {
+            farField = new FarFieldCohesion(SimulationConstants.FAR_COHESION_RADIUS,
+                    SimulationConstants.FAR_FIELD_THETA, width, height);
+        }
+        if (SimulationConstants.AGENT_COLLISIONS) {
+            collisions = new CollisionResolver(width, height);
+        }
+        initMosquitos(mosquitoCount);
+        if (SimulationConstants.BEHAVIOR_BUCKETS > 1) {
+            buckets = new BehaviorBuckets(SimulationConstants.BEHAVIOR_BUCKETS,
+                    SimulationConstants.BEHAVIOR_DRIFT_INTERVAL, SimulationConstants.BEHAVIOR_DRIFT_BOUND);
+            dueRows = i -> buckets.isDue(store, i);
+        }
+
+        clock = new FixedStepClock(SimulationConstants.SIMULATION_TICK_RATE, SimulationConstants.MAX_CATCH_UP_TICKS);
+        previousState = SimulationConstants.RENDER_INTERPOLATION
+                ? new AgentRenderBuffer(mosquitoCount) : null;
+        snapshots = new SnapshotBuffer(mosquitoCount);
+        publishSnapshot();
+    }
+
+    private void initMosquitos(int mosquitoCount) {
+        mosquitos = new ArrayList<>();
+        store = new AgentStore(mosquitoCount, randomStreams.getSeed());
+
+        for (int i = 0; i < mosquitoCount; i++) {
+            Vector2D randomPos = new Vector2D(
+                    random.nextDouble() * width,
+                    random.nextDouble() * height
+            );
+
+            Agent mosquito = new AgentBuilder()
+                    .store(store)
+                    .position(randomPos)
+                    .worldBounds(width, height)
+                    .build();
+
+            mosquitos.add(mosquito);
+        }
+        population = new AgentPopulation(store, mosquitos, randomStreams.split());
+    }
+
+    private NeighborIndex createNeighborIndex() {
+        switch (SimulationConstants.NEIGHBOR_INDEX) {
+            case BRUTE_FORCE:
+                return new BruteForceIndex();
+            case QUADTREE:
+                return new QuadTree(width, height);
+            case K_NEAREST:
+                // Finer cells than the radius grid keep the first rings small inside dense clusters
+                return new KNearestIndex(SimulationConstants.K_NEAREST_NEIGHBORS,
+                        SimulationConstants.DEFAULT_SWARM_DISTANCE * 0.5, width, height);
+            case GRID:
+            default:
+                return new SpatialGrid(SimulationConstants.DEFAULT_SWARM_DISTANCE, width, height);
+        }
+    }
+
+    public void start() {
+        running = true;
+        thread = new Thread(this, "simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Stops after the current tick and waits for it
+    public void stop() {
+        running = false;
+        if (thread == null) return;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        long lastTime = System.nanoTime();
+
+        while (running) {
+            long currentTime = System.nanoTime();
+            double elapsed = (currentTime - lastTime) / 1_000_000_000.0;
+            int due = clock.advance(elapsed);
+            lastTime = currentTime;
+
+            // Every tick has the same length, however late this pass is; only the last state is published
+            double step = clock.getStep();
+            for (int t = 0; t < due; t++) {
+                handleInput(step);
+                update(step);
+            }
+            if (due > 0) {
+                publishSnapshot();
+            }
+            updateStatistics(elapsed, due);
+
+            long wait = (long) (clock.getSecondsUntilNextTick() * 1_000_000_000.0);
+            if (running && wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+    }
+
+    // Runs ticks on the calling thread as fast as possible, without start; for benchmarks and replays
+    public void runTicks(int ticks) {
+        double step = clock.getStep();
+        for (int t = 0; t < ticks; t++) {
+            handleInput(step);
+            update(step);
+        }
+        publishSnapshot();
+    }
+
+    // Called by the render thread with the mouse in world coordinates
+    public void setInput(double mouseX, double mouseY, boolean left, boolean right, boolean middle) {
+        inputMouseX = mouseX;
+        inputMouseY = mouseY;
+        leftMouseDown = left;
+        rightMouseDown = right;
+        middleMouseDown = middle;
+    }
+
+    private void handleInput(double deltaTime) {
+        currentMousePosition.set(inputMouseX, inputMouseY);
+
+        // Left click + mouse movement creates wind
+        WindManager.updateWind(currentMousePosition, leftMouseDown, deltaTime);
+
+        // Right click for light sources - now smaller!
+        if (rightMouseDown) {
+            LightSource newLight = new LightSource(
+                    new Vector2D(currentMousePosition),
+                    60.0,
+                    25.0
+            );
+            LightSourceManager.addLightSource(newLight);
+        }
+
+        // Middle click places a hatching site, once per press
+        boolean middleDown = middleMouseDown;
+        if (middleDown && !middleMouseWasDown) {
+            population.addEmitter(new AgentEmitter(currentMousePosition.x, currentMousePosition.y,
+                    SimulationConstants.HATCH_RADIUS, SimulationConstants.HATCH_RATE,
+                    SimulationConstants.HATCHED_LIFETIME, null));
+        }
+        middleMouseWasDown = middleDown;
+    }
+
+    private void update(double deltaTime) {
+        // Update light sources for flickering
+        LightSourceManager.updateAll(deltaTime);
+
+        // Expire and hatch mosquitoes before anything indexes the list
+        population.update(deltaTime);
+
+        // Keep agents that are close in space close in the list
+        int reorderInterval = SimulationConstants.MORTON_REORDER_INTERVAL;
+        if (reorderInterval > 0 && tickCount % reorderInterval == 0) {
+            int[] order = mortonOrder.sort(mosquitos);
+            store.reorder(order, mosquitos.size());
+            neighborIndex.reorder(order, mosquitos.size());
+            if (collisions != null) {
+                collisions.reorder(order, mosquitos.size());
+            }
+        }
+        tickCount++;
+
+        // Index positions once per tick so neighbor queries only touch nearby agents,
+        // the cached neighbor lists only rebuild once an agent has moved half the skin
+        if (neighborList != null) {
+            neighborList.update(mosquitos, deltaTime);
+        } else {
+            neighborIndex.rebuild(mosquitos);
+        }
+
+        if (farField != null) {
+            farField.compute(mosquitos);
+        }
+
+        // Slots are final for this tick from here on, so the old positions line up with the new ones
+        if (previousState != null) {
+            store.getRenderBuffer().copyTo(previousState, store.getCount());
+        }
+
+        // Behavior forces of all mosquitos first, from the same positions, then one integration pass;
+        // both phases run in parallel over agent ranges
+        // Sampled neighborhoods differ per agent, so they cannot share the symmetric pair pass: a nonzero
+        // MAX_SAMPLED_NEIGHBORS falls back to the per-agent rows even with SYMMETRIC_PAIR_FORCES on. Neither
+        // can buckets, the pair pass would still visit every agent
+        if (buckets != null) {
+            buckets.advance();
+        }
+        boolean pairPass = SimulationConstants.SYMMETRIC_PAIR_FORCES && pairIndex != null
+                && neighborBuffer.getSampleLimit() == 0 && buckets == null;
+        if (pairPass) {
+            pairForces.compute(mosquitos, pairIndex);
+            parallelTick.computeForces(mosquitos, pairForces, null, farField);
+        } else {
+            neighborBuffer.fill(mosquitos, neighborIndex, dueRows);
+            parallelTick.computeForces(mosquitos, null, neighborBuffer, farField, buckets);
+        }
+        parallelTick.integrate(store, deltaTime, currentMousePosition);
+
+        if (collisions != null) {
+            collisions.resolve(store);
+        }
+    }
+
+    private void publishSnapshot() {
+        snapshots.getBack().capture(store, tickCount > 0 ? previousState : null, tickCount,
+                clock.getAlpha(), clock.getStep(), currentMousePosition.x, currentMousePosition.y);
+        snapshots.publish();
+    }
+
+    // Counted against real time, so ticks per second drop below SIMULATION_TICK_RATE when ticks fall behind
+    private void updateStatistics(double elapsed, int ticks) {
+        ticksSinceStatistics += ticks;
+        statisticsTimer += elapsed;
+        if (statisticsTimer < 1.0) return;
+        ticksPerSecond = ticksSinceStatistics / statisticsTimer;
+        ticksSinceStatistics = 0;
+        statisticsTimer = 0.0;
+
+        String text = " | mosquitos: " + population.getCount();
+        if (clock.getDroppedTime() > 0) {
+            text += String.format(" | skipped after stalls: %.1f s", clock.getDroppedTime());
+        }
+        if (neighborList != null) {
+            text += String.format(" | neighbor list rebuilds/s: %.1f", neighborList.getRebuildsPerSecond());
+        }
+        if (buckets != null && buckets.getComparedCount() > 0) {
+            text += String.format(" | %d behavior buckets, cached steering drift: %.1f%% (max %.1f)",
+                    buckets.getCount(), buckets.getRelativeDrift() * 100, buckets.getMaxDrift());
+            buckets.resetDrift();
+        }
+        if (collisions != null) {
+            SweepAndPrune broadPhase = collisions.getBroadPhase();
+            text += String.format(" | contacts: %d (%d tested), sort %.2f ms, sweep %.2f ms",
+                    broadPhase.getContactCount(), broadPhase.getOverlapCount(),
+                    broadPhase.getSortNanos() / 1e6, broadPhase.getSweepNanos() / 1e6);
+        }
+        statistics = text;
+    }
+
+    // Only while the loop is not running
+    public AgentStore getStore() {
+        return store;
+    }
+
+    public SnapshotBuffer getSnapshots() {
+        return snapshots;
+    }
+
+    public double getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    // Population and spatial statistics of the last second, for the window title
+    public String getStatistics() {
+        return statistics;
+    }
+}
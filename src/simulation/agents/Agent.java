@@ -3,254 +3,226 @@ package simulation.agents;
 import engine.math.Vector2D;
 import engine.math.linearAlgebra;
 import engine.objects.renderable.baseObject;
-import simulation.behaviors.MosquitoSwarmBehavior;
 import simulation.behaviors.MosquitoCirclingBehavior;
+import simulation.behaviors.MosquitoSwarmBehavior;
+import simulation.spatial.NeighborBuffer;
+import simulation.spatial.SpatialGrid;
 
-import java.util.List;
-import java.util.Random;
-
+// View onto one slot of an AgentStore; all state lives in the store's arrays
 public class Agent extends baseObject {
-    // Physics properties
-    public Vector2D acceleration;
-    public Vector2D lastAcceleration;
-    public Vector2D velocity;
-    public Vector2D heading;
-    public Vector2D side;
-
-    // Physical constants
-    public double MASS = SimulationConstants.DEFAULT_AGENT_MASS;
-    public double MAX_SPEED = SimulationConstants.DEFAULT_MAX_SPEED;
-    public double MAX_FORCE = SimulationConstants.DEFAULT_MAX_FORCE;
-    public double MAX_TURN_RATE = Math.toRadians(300); // 300 degrees per second max turn rate
-
-    // World and rendering properties
-    public int WIDTH = SimulationConstants.DEFAULT_WINDOW_WIDTH;
-    public int HEIGHT = SimulationConstants.DEFAULT_WINDOW_HEIGHT;
-    public float radius = (float) SimulationConstants.DEFAULT_AGENT_RADIUS;
-
-    // Behavior system
-    private MosquitoSwarmBehavior attractionBehavior;
-    private MosquitoCirclingBehavior circlingBehavior;
-    private MosquitoType mosquitoType;
-
-    // Perception range for finding neighbors
-    public double SWARM_DISTANCE = SimulationConstants.DEFAULT_SWARM_DISTANCE;
-
-    // Path tracking
-    private dynamic2DPath path;
-    private static Random random = new Random();
-
-    private double nervousness = 0.5;
-
-    public Agent(Vector2D randomPos) {
-        super(randomPos);
-        initialize();
-        this.attractionBehavior = new MosquitoSwarmBehavior();
-        this.circlingBehavior = new MosquitoCirclingBehavior();
+    private final AgentStore store;
+    int index;
+    // Generational id from AgentHandles, -1 while the view is parked
+    long agentId = -1;
 
-        // Randomly assign mosquito type
-        this.mosquitoType = random.nextBoolean() ? MosquitoType.LIGHTER : MosquitoType.CIRCLER;
+    public Agent(AgentStore store, Vector2D randomPos) {
+        this(store, randomPos, null);
     }
 
-    public Agent(Vector2D randomPos, MosquitoType type) {
+    // A null type assigns LIGHTER or CIRCLER at random
+    public Agent(AgentStore store, Vector2D randomPos, MosquitoType type) {
         super(randomPos);
-        initialize();
-        this.attractionBehavior = new MosquitoSwarmBehavior();
-        this.circlingBehavior = new MosquitoCirclingBehavior();
-        this.mosquitoType = type;
+        this.store = store;
+        this.index = store.add(randomPos.x, randomPos.y, type, this);
     }
 
-    private void initialize() {
-        acceleration = new Vector2D(0, 0);
-        lastAcceleration = new Vector2D(0, 0);
+    // Pooled view, attached to a slot by AgentStore.spawn
+    Agent(AgentStore store) {
+        this.store = store;
+    }
 
-        double initialSpeed = (0.3 + random.nextDouble() * 0.7) * MAX_SPEED;
-        double initialAngle = random.nextDouble() * 2 * Math.PI;
-        velocity = new Vector2D(
-                Math.cos(initialAngle) * initialSpeed,
-                Math.sin(initialAngle) * initialSpeed
-        );
+    public void update(double deltaTime, NeighborBuffer neighbors, int agentIndex, Vector2D mousePosition) {
+        setForce(getBehaviorForce(neighbors, agentIndex));
+        store.integrate(index, index + 1, deltaTime, mousePosition);
+    }
 
-        nervousness = 0.2 + random.nextDouble() * 0.8;
+    // Variant for precomputed separation and cohesion directions, see PairForces
+    public void update(double deltaTime, Vector2D separation, Vector2D cohesion, Vector2D mousePosition) {
+        setForce(getBehaviorForce(separation, cohesion));
+        store.integrate(index, index + 1, deltaTime, mousePosition);
+    }
 
-        if (!velocity.isNullvector()) {
-            heading = new Vector2D(velocity);
-            heading.normalize();
-        } else {
-            heading = new Vector2D(1, 0);
-        }
+    // Stores the behavior force for the next AgentStore.integrate over a range of agents
+    public void setForce(Vector2D force) {
+        store.forceX[index] = force.x;
+        store.forceY[index] = force.y;
+    }
 
-        side = linearAlgebra.vertical(heading);
-        path = new dynamic2DPath(20);
+    public Vector2D getBehaviorForce(NeighborBuffer neighbors, int agentIndex) {
+        return getBehaviorForce(neighbors, agentIndex, new Vector2D());
     }
 
-    public void update(double deltaTime, List<Agent> neighbors, Vector2D mousePosition) {
-        if (path.getSize() == 0 ||
-                linearAlgebra.euclideanDistance(position, path.getElement(0)) > radius * 2) {
-            path.addWaypoint(new Vector2D(position));
+    // The force is written into out, which is returned
+    public Vector2D getBehaviorForce(NeighborBuffer neighbors, int agentIndex, Vector2D out) {
+        switch (getMosquitoType()) {
+            case LIGHTER:
+                return swarmBehavior().getWeightedForce(this, neighbors, agentIndex, out);
+            case CIRCLER:
+                return circlingBehavior().getWeightedForce(this, neighbors, agentIndex, out);
+            default:
+                return swarmBehavior().getWeightedForce(this, neighbors, agentIndex, out);
         }
+    }
 
-        // Get behavior force
-        Vector2D force = getBehaviorForce(neighbors);
-
-        // Add wind force
-        Vector2D windForce = simulation.environment.WindManager.getWindForce(position, mousePosition, MASS);
-        force.add(windForce);
-
-        // Add nervousness
-        Vector2D nervousnessForce = getNervousnessForce();
-        force.add(nervousnessForce);
-
-        force.truncate(MAX_FORCE);
-
-        Vector2D deltaAcceleration = linearAlgebra.mult(force, 1.0 / MASS);
-        acceleration = deltaAcceleration;
-
-        velocity.add(linearAlgebra.mult(acceleration, deltaTime));
-        velocity.mult(0.995);
-
-        updatePhysicsWithTurningConstraints(deltaTime);
-
-        velocity.truncate(MAX_SPEED);
-
-        Vector2D deltaPosition = linearAlgebra.mult(velocity, deltaTime);
-        position.add(deltaPosition);
-
-        updateOrientationFast();
-        handleWorldBounds();
-        updateStatus();
+    public Vector2D getBehaviorForce(Vector2D separation, Vector2D cohesion) {
+        return getBehaviorForce(separation, cohesion, new Vector2D());
     }
 
-    private Vector2D getBehaviorForce(List<Agent> neighbors) {
-        switch (mosquitoType) {
+    // out may be separation or cohesion
+    public Vector2D getBehaviorForce(Vector2D separation, Vector2D cohesion, Vector2D out) {
+        double separationX = separation.x, separationY = separation.y;
+        switch (getMosquitoType()) {
             case LIGHTER:
-                return attractionBehavior.getWeightedForce(this, neighbors);
+                return swarmBehavior().getWeightedForce(this, separationX, separationY, cohesion.x, cohesion.y, out);
             case CIRCLER:
-                return circlingBehavior.getWeightedForce(this, neighbors);
+                return circlingBehavior().getWeightedForce(this, separationX, separationY, cohesion.x, cohesion.y, out);
             default:
-                return attractionBehavior.getWeightedForce(this, neighbors);
+                return swarmBehavior().getWeightedForce(this, separationX, separationY, cohesion.x, cohesion.y, out);
         }
     }
 
-    private Vector2D getNervousnessForce() {
-        double intensity = nervousness * MAX_FORCE * 0.3;
-        return new Vector2D(
-                (random.nextGaussian() - 0.5) * intensity,
-                (random.nextGaussian() - 0.5) * intensity
-        );
+    // Steering part of getBehaviorForce only, see MosquitoSwarmBehavior.getSteeringForce; out may be
+    // separation or cohesion
+    public Vector2D getSteeringForce(Vector2D separation, Vector2D cohesion, Vector2D out) {
+        double separationX = separation.x, separationY = separation.y;
+        return (getMosquitoType() == MosquitoType.CIRCLER)
+                ? circlingBehavior().getSteeringForce(this, separationX, separationY, cohesion.x, cohesion.y, out)
+                : swarmBehavior().getSteeringForce(this, separationX, separationY, cohesion.x, cohesion.y, out);
     }
 
-    private void updateOrientationFast() {
-        if (!velocity.isNullvector()) {
-            Vector2D newDesiredHeading = new Vector2D(velocity);
-            newDesiredHeading.normalize();
+    // Adds the part of getBehaviorForce that is computed every tick (lights and noise) to out
+    public Vector2D addFreshForce(Vector2D out) {
+        return (getMosquitoType() == MosquitoType.CIRCLER)
+                ? circlingBehavior().addFreshForce(this, out)
+                : swarmBehavior().addFreshForce(this, out);
+    }
 
-            if (!heading.isNullvector() && !newDesiredHeading.isNullvector()) {
-                double currentAngle = Math.atan2(heading.y, heading.x);
-                double desiredAngle = Math.atan2(newDesiredHeading.y, newDesiredHeading.x);
+    // Separation direction alone, for when cohesion comes from elsewhere (see FarFieldCohesion)
+    public Vector2D getSeparation(NeighborBuffer neighbors, int agentIndex) {
+        return getSeparation(neighbors, agentIndex, new Vector2D());
+    }
 
-                double angleDiff = desiredAngle - currentAngle;
+    public Vector2D getSeparation(NeighborBuffer neighbors, int agentIndex, Vector2D out) {
+        return (getMosquitoType() == MosquitoType.CIRCLER)
+                ? circlingBehavior().getSeparation(this, neighbors, agentIndex, out)
+                : swarmBehavior().getSeparation(this, neighbors, agentIndex, out);
+    }
 
-                while (angleDiff > Math.PI) angleDiff -= 2 * Math.PI;
-                while (angleDiff < -Math.PI) angleDiff += 2 * Math.PI;
+    public Vector2D getCohesion(NeighborBuffer neighbors, int agentIndex, Vector2D out) {
+        return (getMosquitoType() == MosquitoType.CIRCLER)
+                ? circlingBehavior().getCohesion(this, neighbors, agentIndex, out)
+                : swarmBehavior().getCohesion(this, neighbors, agentIndex, out);
+    }
 
-                // Limit turning rate
-                double maxTurnThisFrame = MAX_TURN_RATE * (1.0 / 60.0);
-                double actualTurn = Math.max(-maxTurnThisFrame, Math.min(maxTurnThisFrame, angleDiff));
+    public double getSeparationDistance() {
+        return (getMosquitoType() == MosquitoType.CIRCLER)
+                ? circlingBehavior().getSeparationDistance(this)
+                : swarmBehavior().getSeparationDistance(this);
+    }
 
-                // Apply the limited turn
-                double newAngle = currentAngle + actualTurn;
-                heading.x = Math.cos(newAngle);
-                heading.y = Math.sin(newAngle);
+    public double getCohesionDistance() {
+        return (getMosquitoType() == MosquitoType.CIRCLER)
+                ? circlingBehavior().getCohesionDistance(this)
+                : swarmBehavior().getCohesionDistance(this);
+    }
 
-            } else {
-                heading = newDesiredHeading;
-            }
+    private MosquitoSwarmBehavior swarmBehavior() {
+        return store.getSwarmBehavior();
+    }
 
-            side = linearAlgebra.vertical(heading);
-        }
+    private MosquitoCirclingBehavior circlingBehavior() {
+        return store.getCirclingBehavior();
     }
 
-    private void updatePhysicsWithTurningConstraints(double deltaTime) {
-        Vector2D currentDirection = new Vector2D();
-        if (!velocity.isNullvector()) {
-            currentDirection = new Vector2D(velocity);
-            currentDirection.normalize();
-        } else {
-            currentDirection = new Vector2D(heading);
-        }
+    @Override
+    public void render() {
+        engine.rendering.PrimitiveRenderer.renderMosquito(
+                (float) store.x[index],
+                (float) store.y[index],
+                SimulationConstants.MOSQUITO_SIZE,
+                (float) store.velocityX[index],
+                (float) store.velocityY[index]
+        );
+    }
 
-        Vector2D desiredDirection = new Vector2D(acceleration);
-        if (!desiredDirection.isNullvector()) {
-            desiredDirection.normalize();
-        } else {
-            desiredDirection = new Vector2D(currentDirection);
-        }
+    // Copy of the position from the store (the one baseObject keeps is never read); changing it does not move
+    // the agent, use setPosition
+    @Override
+    public Vector2D getPosition() {
+        return new Vector2D(store.x[index], store.y[index]);
+    }
 
-        if (!currentDirection.isNullvector() && !desiredDirection.isNullvector()) {
-            double currentAngle = Math.atan2(currentDirection.y, currentDirection.x);
-            double desiredAngle = Math.atan2(desiredDirection.y, desiredDirection.x);
+    @Override
+    public void setPosition(Vector2D pos) {
+        setPosition(pos.x, pos.y);
+    }
 
-            double angleDiff = desiredAngle - currentAngle;
-            while (angleDiff > Math.PI) angleDiff -= 2 * Math.PI;
-            while (angleDiff < -Math.PI) angleDiff += 2 * Math.PI;
+    public void setPosition(double x, double y) {
+        store.x[index] = x;
+        store.y[index] = y;
+        store.publish(index);
+    }
 
-            double maxTurn = MAX_TURN_RATE * deltaTime;
-            double actualTurn = Math.max(-maxTurn, Math.min(maxTurn, angleDiff));
+    public double getX() { return store.x[index]; }
+    public double getY() { return store.y[index]; }
 
-            double newAngle = currentAngle + actualTurn;
-            Vector2D limitedDirection = new Vector2D(Math.cos(newAngle), Math.sin(newAngle));
+    public Vector2D getVelocity() { return new Vector2D(store.velocityX[index], store.velocityY[index]); }
+    public double getVelocityX() { return store.velocityX[index]; }
+    public double getVelocityY() { return store.velocityY[index]; }
 
-            double currentSpeed = velocity.length();
-            velocity = linearAlgebra.mult(limitedDirection, currentSpeed);
-        }
+    public void setVelocity(double x, double y) {
+        store.velocityX[index] = x;
+        store.velocityY[index] = y;
+        store.publish(index);
     }
 
-
-    private void updateStatus() {
-        double speedRatio = velocity.length() / MAX_SPEED;
-        nervousness = 0.2 + speedRatio * 0.6 + random.nextGaussian() * 0.1;
-        nervousness = Math.max(0.1, Math.min(1.0, nervousness));
+    public Vector2D getAcceleration() { return new Vector2D(store.accelerationX[index], store.accelerationY[index]); }
+    public Vector2D getHeading() { return new Vector2D(store.headingX[index], store.headingY[index]); }
+    public Vector2D getSide() { return linearAlgebra.vertical(getHeading()); }
+
+    public Vector2D getPosition(Vector2D out) { return out.set(store.x[index], store.y[index]); }
+    public Vector2D getVelocity(Vector2D out) { return out.set(store.velocityX[index], store.velocityY[index]); }
+    public Vector2D getHeading(Vector2D out) { return out.set(store.headingX[index], store.headingY[index]); }
+
+    public double getMass() { return store.getMass(index); }
+    public double getMaxSpeed() { return store.getMaxSpeed(index); }
+    public double getMaxForce() { return store.getMaxForce(index); }
+    public double getMaxTurnRate() { return store.getMaxTurnRate(index); }
+    public double getSwarmDistance() { return store.getSwarmDistance(index); }
+    public float getRadius() { return store.getRadius(index); }
+    public double getNervousness() { return store.nervousness[index]; }
+    public double getLifetime() { return store.lifetime[index]; }
+    public void setLifetime(double seconds) { store.lifetime[index] = seconds; }
+
+    // Overrides of the species parameters for this agent only
+    public void setMass(double mass) { store.setMass(index, mass); }
+    public void setMaxSpeed(double maxSpeed) { store.setMaxSpeed(index, maxSpeed); }
+    public void setMaxForce(double maxForce) { store.setMaxForce(index, maxForce); }
+    public void setMaxTurnRate(double maxTurnRate) { store.setMaxTurnRate(index, maxTurnRate); }
+    public void setRadius(float radius) { store.setRadius(index, radius); }
+    public void setSwarmDistance(double distance) { store.setSwarmDistance(index, distance); }
+
+    public AgentStore getStore() { return store; }
+    public int getIndex() { return index; }
+    public long getId() { return agentId; }
+
+    public MosquitoType getMosquitoType() { return store.getType(index); }
+    public void setWorldBounds(int width, int height) { store.setWorldBounds(width, height); }
+    public double getDistanceTo(Agent other) {
+        return linearAlgebra.length(getOffsetXFrom(other), getOffsetYFrom(other));
     }
+    public boolean canSee(Agent other) { return getDistanceTo(other) <= getSwarmDistance(); }
 
-    private void handleWorldBounds() {
-        boolean wrapped = false;
-
-        if (position.x < -radius * 0.5) {
-            position.x = WIDTH + radius * 0.5;
-            wrapped = true;
-        }
-        if (position.x > WIDTH + radius * 0.5) {
-            position.x = -radius * 0.5;
-            wrapped = true;
-        }
-        if (position.y < -radius * 0.5) {
-            position.y = HEIGHT + radius * 0.5;
-            wrapped = true;
-        }
-        if (position.y > HEIGHT + radius * 0.5) {
-            position.y = -radius * 0.5;
-            wrapped = true;
-        }
-
-        if (wrapped) {
-            path = new dynamic2DPath(20);
-        }
+    // Shortest vector from other to this agent, taking the wrap-around world edges into account
+    public Vector2D getOffsetFrom(Agent other) {
+        return new Vector2D(getOffsetXFrom(other), getOffsetYFrom(other));
     }
 
-    @Override
-    public void render() {
-        engine.rendering.PrimitiveRenderer.renderMosquito(
-                (float) position.x,
-                (float) position.y,
-                SimulationConstants.MOSQUITO_SIZE,
-                (float) velocity.x,
-                (float) velocity.y
-        );
+    public double getOffsetXFrom(Agent other) {
+        return SpatialGrid.wrap(getX() - other.getX(), store.getWorldWidth());
     }
 
-    public void setWorldBounds(int width, int height) { this.WIDTH = width; this.HEIGHT = height; }
-    public void setSwarmDistance(double distance) { this.SWARM_DISTANCE = distance; }
-    public double getDistanceTo(Agent other) { return linearAlgebra.euclideanDistance(this.position, other.position); }
-    public boolean canSee(Agent other) { return getDistanceTo(other) <= SWARM_DISTANCE; }
-}
\ No newline at end of file
+    public double getOffsetYFrom(Agent other) {
+        return SpatialGrid.wrap(getY() - other.getY(), store.getWorldHeight());
+    }
+}
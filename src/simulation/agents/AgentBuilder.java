@@ -4,14 +4,16 @@ import engine.math.Vector2D;
 
 public class AgentBuilder {
     private Vector2D position = new Vector2D();
-    private double mass = SimulationConstants.DEFAULT_AGENT_MASS;
-    private double maxSpeed = SimulationConstants.DEFAULT_MAX_SPEED;
-    private double maxForce = SimulationConstants.DEFAULT_MAX_FORCE;
-    private double radius = SimulationConstants.DEFAULT_AGENT_RADIUS;
-    private double swarmDistance = SimulationConstants.DEFAULT_SWARM_DISTANCE;
+    // NaN keeps the species value, anything else becomes a per-agent override
+    private double mass = Double.NaN;
+    private double maxSpeed = Double.NaN;
+    private double maxForce = Double.NaN;
+    private double radius = Double.NaN;
+    private double swarmDistance = Double.NaN;
     private int worldWidth = SimulationConstants.DEFAULT_WINDOW_WIDTH;
     private int worldHeight = SimulationConstants.DEFAULT_WINDOW_HEIGHT;
     private MosquitoType mosquitoType = null; // null means random selection
+    private AgentStore store;
 
     public AgentBuilder position(Vector2D position) {
         this.position = position;
@@ -54,22 +56,24 @@ public class AgentBuilder {
         return this;
     }
 
-    public Agent build() {
-        Agent agent;
+    // All agents of one simulation must share a store; without one the agent gets a store of its own
+    public AgentBuilder store(AgentStore store) {
+        this.store = store;
+        return this;
+    }
 
-        if (mosquitoType != null) {
-            agent = new Agent(position, mosquitoType);
-        } else {
-            agent = new Agent(position);
-        }
+    public Agent build() {
+        AgentStore target = (store != null) ? store : new AgentStore(1);
+        Agent agent = new Agent(target, position, mosquitoType);
 
+        // World bounds are shared by all agents of the store
         agent.setWorldBounds(worldWidth, worldHeight);
-        agent.setSwarmDistance(swarmDistance);
 
-        agent.MASS = mass;
-        agent.MAX_SPEED = maxSpeed;
-        agent.MAX_FORCE = maxForce;
-        agent.radius = (float) radius;
+        if (!Double.isNaN(swarmDistance)) agent.setSwarmDistance(swarmDistance);
+        if (!Double.isNaN(mass)) agent.setMass(mass);
+        if (!Double.isNaN(maxSpeed)) agent.setMaxSpeed(maxSpeed);
+        if (!Double.isNaN(maxForce)) agent.setMaxForce(maxForce);
+        if (!Double.isNaN(radius)) agent.setRadius((float) radius);
 
         return agent;
     }
@@ -0,0 +1,49 @@
+package simulation.agents;
+
+import java.util.SplittableRandom;
+
+// Spawns agents around a point at a steady rate, e.g. mosquitoes hatching from a puddle
+public class AgentEmitter {
+    private double x, y;
+    private double radius;
+    private double rate;
+    private double lifetime;
+    private MosquitoType type;
+
+    // Fraction of an agent carried over to the next update, so low rates still spawn on average
+    private double pending;
+
+    // A null type hatches LIGHTER or CIRCLER at random, an infinite lifetime keeps the agents forever
+    public AgentEmitter(double x, double y, double radius, double rate, double lifetime, MosquitoType type) {
+        this.x = x;
+        this.y = y;
+        this.radius = radius;
+        this.rate = rate;
+        this.lifetime = lifetime;
+        this.type = type;
+    }
+
+    public void emit(AgentPopulation population, double deltaTime, SplittableRandom random) {
+        pending += rate * deltaTime;
+        while (pending >= 1.0) {
+            pending -= 1.0;
+
+            // Uniform over the disc
+            double distance = radius * Math.sqrt(random.nextDouble());
+            double angle = random.nextDouble() * 2 * Math.PI;
+            population.spawn(x + Math.cos(angle) * distance, y + Math.sin(angle) * distance, type, lifetime);
+        }
+    }
+
+    public void setPosition(double x, double y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    public double getX() { return x; }
+    public double getY() { return y; }
+    public double getRadius() { return radius; }
+    public double getRate() { return rate; }
+    public void setRate(double rate) { this.rate = rate; }
+    public double getLifetime() { return lifetime; }
+}
@@ -0,0 +1,92 @@
+package simulation.agents;
+
+import java.util.Arrays;
+
+// Stable ids for agents whose storage slot changes (reorder, swap-remove). An id packs a handle index (low
+// 32 bits) and the generation of that handle (high 32 bits); releasing a handle bumps its generation, so old
+// ids of a reused handle no longer resolve. A handle recycled every second takes over a century to come back
+// to a generation an old id still carries. Lookups are two array reads.
+public class AgentHandles {
+    private static final int INDEX_BITS = 32;
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+
+    // Per handle index: current slot (-1 while free) and generation
+    private int[] slot = new int[0];
+    private int[] generation = new int[0];
+    private int handleCount;
+
+    // Released handle indices, reused oldest first so a handle's generation wraps as late as possible
+    private int[] freeQueue = new int[0];
+    private int freeHead;
+    private int freeSize;
+
+    // New id for an agent stored at slot
+    public long create(int agentSlot) {
+        int index;
+        if (freeSize > 0) {
+            index = freeQueue[freeHead];
+            freeHead = (freeHead + 1) % freeQueue.length;
+            freeSize--;
+        } else {
+            if (handleCount == Integer.MAX_VALUE) {
+                throw new IllegalStateException("More than " + Integer.MAX_VALUE + " agent handles");
+            }
+            if (handleCount == slot.length) {
+                int capacity = Math.max(256, slot.length * 2);
+                slot = Arrays.copyOf(slot, capacity);
+                generation = Arrays.copyOf(generation, capacity);
+            }
+            index = handleCount++;
+        }
+
+        slot[index] = agentSlot;
+        return ((long) generation[index] << INDEX_BITS) | index;
+    }
+
+    // Current slot of the agent, or -1 if the id was released
+    public int getSlot(long id) {
+        if (id < 0) return -1;
+        int index = getIndex(id);
+        if (index >= handleCount || generation[index] != (int) (id >>> INDEX_BITS)) return -1;
+        return slot[index];
+    }
+
+    public boolean isAlive(long id) {
+        return getSlot(id) >= 0;
+    }
+
+    // Called by the store whenever the agent's slot changes
+    public void move(long id, int agentSlot) {
+        slot[getIndex(id)] = agentSlot;
+    }
+
+    public void release(long id) {
+        int index = getIndex(id);
+        if (getSlot(id) < 0) return;
+
+        slot[index] = -1;
+        // Kept below 2^31, so ids stay positive and -1 never resolves
+        generation[index] = (generation[index] + 1) & Integer.MAX_VALUE;
+
+        if (freeSize == freeQueue.length) {
+            int[] grown = new int[Math.max(64, freeQueue.length * 2)];
+            for (int k = 0; k < freeSize; k++) {
+                grown[k] = freeQueue[(freeHead + k) % freeQueue.length];
+            }
+            freeQueue = grown;
+            freeHead = 0;
+        }
+        freeQueue[(freeHead + freeSize) % freeQueue.length] = index;
+        freeSize++;
+    }
+
+    // Handle index of an id, dense and stable for the agent's lifetime
+    public static int getIndex(long id) {
+        return (int) (id & INDEX_MASK);
+    }
+
+    // Handles in use
+    public int getCount() {
+        return handleCount - freeSize;
+    }
+}
@@ -0,0 +1,101 @@
+package simulation.agents;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Spawning and despawning at runtime. Keeps the agent list in the same order as the store slots: a removed
+// agent's place is taken by the last one, so both stay dense and the iteration order only changes at the
+// removed slots. Slots and views are pooled by the store, steady churn allocates nothing.
+public class AgentPopulation {
+    private final AgentStore store;
+    private final List<Agent> agents;
+    private final List<AgentEmitter> emitters = new ArrayList<>();
+    private final SplittableRandom random;
+
+    private long spawnCount;
+    private long despawnCount;
+
+    // agents must hold the store's agents in slot order, e.g. the list they were built into
+    public AgentPopulation(AgentStore store, List<Agent> agents, SplittableRandom random) {
+        this.store = store;
+        this.agents = agents;
+        this.random = random;
+    }
+
+    // Positions outside the world are wrapped onto the torus
+    public Agent spawn(double x, double y, MosquitoType type, double lifetime) {
+        double width = store.getWorldWidth();
+        double height = store.getWorldHeight();
+        Agent agent = store.spawn(x - Math.floor(x / width) * width, y - Math.floor(y / height) * height, type);
+        agent.setLifetime(lifetime);
+        agents.add(agent);
+        spawnCount++;
+        return agent;
+    }
+
+    public Agent spawn(double x, double y, MosquitoType type) {
+        return spawn(x, y, type, Double.POSITIVE_INFINITY);
+    }
+
+    public void despawn(Agent agent) {
+        despawnSlot(agent.getIndex());
+    }
+
+    // False if the id no longer exists
+    public boolean despawn(long agentId) {
+        int slot = store.getSlot(agentId);
+        if (slot < 0) return false;
+        despawnSlot(slot);
+        return true;
+    }
+
+    private void despawnSlot(int slot) {
+        int last = store.getCount() - 1;
+        store.despawn(slot);
+        agents.set(slot, agents.get(last));
+        agents.remove(last);
+        despawnCount++;
+    }
+
+    // Ages all agents, removes the expired ones and lets the emitters spawn. Runs between ticks, before the
+    // neighbor structures are built from the list.
+    public void update(double deltaTime) {
+        // Backwards, so the agent moved into a freed slot has already been aged
+        for (int i = store.getCount() - 1; i >= 0; i--) {
+            double left = store.lifetime[i] - deltaTime;
+            store.lifetime[i] = left;
+            if (left <= 0.0) {
+                despawnSlot(i);
+            }
+        }
+
+        for (int e = 0; e < emitters.size(); e++) {
+            emitters.get(e).emit(this, deltaTime, random);
+        }
+    }
+
+    public void addEmitter(AgentEmitter emitter) {
+        emitters.add(emitter);
+    }
+
+    public void removeEmitter(AgentEmitter emitter) {
+        emitters.remove(emitter);
+    }
+
+    public List<AgentEmitter> getEmitters() {
+        return emitters;
+    }
+
+    public int getCount() {
+        return store.getCount();
+    }
+
+    public long getSpawnCount() {
+        return spawnCount;
+    }
+
+    public long getDespawnCount() {
+        return despawnCount;
+    }
+}
@@ -0,0 +1,83 @@
+package simulation.agents;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+// Off-heap float copy of the kinematic state that the renderer draws from, FLOATS_PER_AGENT floats per slot:
+//   [slot * 4 + 0] x, [slot * 4 + 1] y, [slot * 4 + 2] velocityX, [slot * 4 + 3] velocityY
+// in native byte order, slots like in AgentStore. AgentStore writes it during the tick and the renderer hands
+// the same memory to OpenGL as an instance vertex buffer, so drawing does not copy agents one by one.
+// Direct memory lies outside the Java heap and is never scanned or moved by the GC.
+public class AgentRenderBuffer {
+    public static final int FLOATS_PER_AGENT = 4;
+    public static final int STRIDE_BYTES = FLOATS_PER_AGENT * Float.BYTES;
+
+    private FloatBuffer floats;
+
+    public AgentRenderBuffer(int capacity) {
+        floats = allocate(capacity);
+    }
+
+    public void write(int slot, double x, double y, double velocityX, double velocityY) {
+        int base = slot * FLOATS_PER_AGENT;
+        floats.put(base, (float) x);
+        floats.put(base + 1, (float) y);
+        floats.put(base + 2, (float) velocityX);
+        floats.put(base + 3, (float) velocityY);
+    }
+
+    // Keeps the written slots when growing
+    public void ensureCapacity(int capacity) {
+        if (getCapacity() >= capacity) return;
+
+        FloatBuffer grown = allocate(capacity);
+        floats.clear();
+        grown.put(floats);
+        grown.clear();
+        floats = grown;
+    }
+
+    // Bulk copy of the first count slots into target, grown when needed
+    public void copyTo(AgentRenderBuffer target, int count) {
+        target.ensureCapacity(count);
+        target.floats.put(0, floats, 0, count * FLOATS_PER_AGENT);
+    }
+
+    // Blends the first count slots of from (alpha 0) and to (alpha 1) into this buffer. A slot that moved more
+    // than half the world in between wrapped around an edge and is drawn at its new position instead.
+    public void interpolate(AgentRenderBuffer from, AgentRenderBuffer to, int count, double alpha,
+                            double worldWidth, double worldHeight) {
+        ensureCapacity(count);
+        float t = (float) alpha;
+        float halfWidth = (float) worldWidth * 0.5f, halfHeight = (float) worldHeight * 0.5f;
+        FloatBuffer a = from.floats, b = to.floats;
+
+        for (int base = 0, end = count * FLOATS_PER_AGENT; base < end; base += FLOATS_PER_AGENT) {
+            float x0 = a.get(base), y0 = a.get(base + 1);
+            float x1 = b.get(base), y1 = b.get(base + 1);
+            if (Math.abs(x1 - x0) > halfWidth || Math.abs(y1 - y0) > halfHeight) {
+                x0 = x1;
+                y0 = y1;
+            }
+            floats.put(base, x0 + (x1 - x0) * t);
+            floats.put(base + 1, y0 + (y1 - y0) * t);
+            float vx0 = a.get(base + 2), vy0 = a.get(base + 3);
+            floats.put(base + 2, vx0 + (b.get(base + 2) - vx0) * t);
+            floats.put(base + 3, vy0 + (b.get(base + 3) - vy0) * t);
+        }
+    }
+
+    // The buffer itself, position 0 and limit at the capacity; callers that narrow the limit must restore it
+    public FloatBuffer getFloats() {
+        return floats;
+    }
+
+    public int getCapacity() {
+        return floats.capacity() / FLOATS_PER_AGENT;
+    }
+
+    private static FloatBuffer allocate(int capacity) {
+        return ByteBuffer.allocateDirect(capacity * STRIDE_BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+}
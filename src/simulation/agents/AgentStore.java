@@ -0,0 +1,593 @@
+package simulation.agents;
+
+import engine.math.Rotation2D;
+import engine.math.Vector2D;
+import simulation.behaviors.MosquitoCirclingBehavior;
+import simulation.behaviors.MosquitoSwarmBehavior;
+import simulation.environment.WindManager;
+import simulation.kernels.ForceKernels;
+
+import java.util.Arrays;
+
+// State of all agents in parallel primitive arrays, slot i of every array belongs to the same agent.
+// Agent objects are thin views onto one slot; the per-tick update runs over index ranges of the arrays.
+public class AgentStore {
+    private static final int DEFAULT_CAPACITY = 256;
+    private static final MosquitoType[] TYPES = MosquitoType.values();
+
+    // Kinematics
+    public double[] x, y;
+    public double[] velocityX, velocityY;
+    public double[] accelerationX, accelerationY;
+    public double[] headingX, headingY;
+
+    // Parameters are looked up as parameters.mass[parameterRow[i]] etc., see ParameterTable
+    public final ParameterTable parameters = new ParameterTable();
+    public int[] parameterRow;
+    public byte[] type;
+    public double[] nervousness;
+
+    // Behavior force of the current tick, written before integrate
+    public double[] forceX, forceY;
+    // Steering part of the behavior force from the agent's last evaluation, reused on ticks its bucket is
+    // skipped (see BehaviorBuckets); NaN until the first one
+    public double[] behaviorForceX, behaviorForceY;
+
+    // Newest waypoint of the trail, NaN while the trail is empty (right after spawning or wrapping)
+    public double[] waypointX, waypointY;
+
+    // Seconds left to live, infinite for agents without a lifetime
+    public double[] lifetime;
+
+    // Random stream of each agent, see RandomStreams
+    public long[] randomState;
+
+    // Stable id of the agent in each slot, resolved back to a slot through handles
+    public long[] id;
+    public final AgentHandles handles = new AgentHandles();
+
+    private Agent[] views;
+    private AgentRenderBuffer renderBuffer;
+    private int count;
+    private int worldWidth = SimulationConstants.DEFAULT_WINDOW_WIDTH;
+    private int worldHeight = SimulationConstants.DEFAULT_WINDOW_HEIGHT;
+
+    // Behaviors hold no per-agent state, so all agents share one instance of each
+    private final MosquitoSwarmBehavior swarmBehavior = new MosquitoSwarmBehavior();
+    private final MosquitoCirclingBehavior circlingBehavior = new MosquitoCirclingBehavior();
+    private final long seed;
+    private long spawnCount;
+    private final NoiseBuffer noise = new NoiseBuffer();
+    // Shared by the behaviors for their row kernels; integrate uses a copy per thread, see Workspace
+    private ForceKernels kernels = ForceKernels.create(SimulationConstants.FORCE_KERNELS);
+    private Integrator integrator = Integrator.create(SimulationConstants.INTEGRATOR,
+            SimulationConstants.VELOCITY_DAMPING);
+    private final ThreadLocal<Workspace> workspaces = ThreadLocal.withInitial(Workspace::new);
+
+    // Scratch buffers for reorder, swapped with the live arrays
+    private double[] reorderScratch = new double[0];
+    private int[] reorderRow = new int[0];
+    private long[] reorderId = new long[0];
+    private long[] reorderState = new long[0];
+    private byte[] reorderType = new byte[0];
+    private Agent[] reorderViews = new Agent[0];
+
+    public AgentStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public AgentStore(int capacity) {
+        this(capacity, SimulationConstants.RANDOM_SEED);
+    }
+
+    // Stores with the same seed spawn the same agents and draw the same random sequences (seed 0: a new seed)
+    public AgentStore(int capacity, long seed) {
+        this.seed = RandomStreams.resolveSeed(seed);
+        allocate(Math.max(1, capacity));
+    }
+
+    // Appends an agent with the default parameters and a random initial velocity, returns its slot
+    int add(double positionX, double positionY, MosquitoType mosquitoType, Agent view) {
+        if (count == x.length) {
+            allocate(x.length * 2);
+        }
+        int i = count++;
+
+        x[i] = positionX;
+        y[i] = positionY;
+        accelerationX[i] = 0.0;
+        accelerationY[i] = 0.0;
+        forceX[i] = 0.0;
+        forceY[i] = 0.0;
+        behaviorForceX[i] = Double.NaN;
+        behaviorForceY[i] = Double.NaN;
+        waypointX[i] = Double.NaN;
+        waypointY[i] = Double.NaN;
+        lifetime[i] = Double.POSITIVE_INFINITY;
+        randomState[i] = RandomStreams.agentState(seed, spawnCount++);
+
+        if (mosquitoType == null) {
+            mosquitoType = nextRandom(i) < 0.5 ? MosquitoType.LIGHTER : MosquitoType.CIRCLER;
+        }
+        type[i] = (byte) mosquitoType.ordinal();
+        parameterRow[i] = parameters.getSpeciesRow(mosquitoType);
+
+        double initialSpeed = (0.3 + nextRandom(i) * 0.7) * getMaxSpeed(i);
+        double initialAngle = nextRandom(i) * 2 * Math.PI;
+        velocityX[i] = Math.cos(initialAngle) * initialSpeed;
+        velocityY[i] = Math.sin(initialAngle) * initialSpeed;
+
+        nervousness[i] = 0.2 + nextRandom(i) * 0.8;
+
+        if (velocityX[i] != 0 || velocityY[i] != 0) {
+            double speed = Math.sqrt(velocityX[i] * velocityX[i] + velocityY[i] * velocityY[i]);
+            headingX[i] = velocityX[i] / speed;
+            headingY[i] = velocityY[i] / speed;
+        } else {
+            headingX[i] = 1.0;
+            headingY[i] = 0.0;
+        }
+
+        id[i] = handles.create(i);
+        views[i] = view;
+        view.agentId = id[i];
+        noise.fill(i, i + 1, randomState);
+        publish(i);
+        return i;
+    }
+
+    // Adds an agent in the next free slot. Views of despawned agents wait past the end of the store and are
+    // reused, so spawning into a store that has held this many agents before allocates nothing.
+    public Agent spawn(double positionX, double positionY, MosquitoType mosquitoType) {
+        Agent view = (count < views.length) ? views[count] : null;
+        if (view == null) {
+            view = new Agent(this);
+        }
+        view.index = add(positionX, positionY, mosquitoType, view);
+        return view;
+    }
+
+    // Removes the agent in slot i by moving the last agent into it, so slots stay dense. The removed view is
+    // parked behind the last agent for the next spawn; its id stops resolving.
+    public void despawn(int i) {
+        int last = count - 1;
+        Agent removed = views[i];
+
+        handles.release(id[i]);
+        parameters.releaseRow(parameterRow[i]);
+
+        if (i != last) {
+            x[i] = x[last];
+            y[i] = y[last];
+            velocityX[i] = velocityX[last];
+            velocityY[i] = velocityY[last];
+            accelerationX[i] = accelerationX[last];
+            accelerationY[i] = accelerationY[last];
+            headingX[i] = headingX[last];
+            headingY[i] = headingY[last];
+            nervousness[i] = nervousness[last];
+            forceX[i] = forceX[last];
+            forceY[i] = forceY[last];
+            behaviorForceX[i] = behaviorForceX[last];
+            behaviorForceY[i] = behaviorForceY[last];
+            waypointX[i] = waypointX[last];
+            waypointY[i] = waypointY[last];
+            lifetime[i] = lifetime[last];
+            randomState[i] = randomState[last];
+            parameterRow[i] = parameterRow[last];
+            type[i] = type[last];
+            id[i] = id[last];
+            handles.move(id[i], i);
+
+            views[i] = views[last];
+            views[i].index = i;
+            publish(i);
+        }
+
+        views[last] = removed;
+        removed.index = -1;
+        removed.agentId = -1;
+        count--;
+    }
+
+    // Integrates agents [from, to) by one step, using the behavior forces in forceX/forceY (which end up
+    // including wind and noise). Steps without angles run as array kernels over the whole range.
+    // Disjoint ranges may be integrated on different threads at the same time.
+    public void integrate(int from, int to, double deltaTime, Vector2D mousePosition) {
+        Workspace workspace = workspaces.get();
+        ForceKernels kernels = workspace.kernels(this.kernels);
+
+        for (int i = from; i < to; i++) {
+            int row = parameterRow[i];
+            double r = parameters.radius[row];
+
+            if (Double.isNaN(waypointX[i]) || distance(x[i], y[i], waypointX[i], waypointY[i]) > r * 2) {
+                waypointX[i] = x[i];
+                waypointY[i] = y[i];
+            }
+
+            // Add nervousness
+            double intensity = nervousness[i] * parameters.maxForce[row] * 0.3;
+            forceX[i] += (noise.gaussian(i, NoiseBuffer.NERVOUS_X) - 0.5) * intensity;
+            forceY[i] += (noise.gaussian(i, NoiseBuffer.NERVOUS_Y) - 0.5) * intensity;
+        }
+
+        if (WindManager.hasWind()) {
+            kernels.applyWind(x, y, parameterRow, parameters.mass, forceX, forceY, from, to,
+                    mousePosition.x, mousePosition.y,
+                    WindManager.getWindX(), WindManager.getWindY(), WindManager.getWindRadius());
+        }
+
+        integrator.kick(this, kernels, from, to, deltaTime);
+
+        for (int i = from; i < to; i++) {
+            limitTurn(i, deltaTime, workspace);
+        }
+
+        integrator.drift(this, kernels, from, to, deltaTime);
+
+        for (int i = from; i < to; i++) {
+            updateHeading(i, deltaTime, workspace);
+            wrapBounds(i);
+
+            double speedRatio = Math.sqrt(velocityX[i] * velocityX[i] + velocityY[i] * velocityY[i]) / getMaxSpeed(i);
+            double status = 0.2 + speedRatio * 0.6 + noise.gaussian(i, NoiseBuffer.STATUS) * 0.1;
+            nervousness[i] = Math.max(0.1, Math.min(1.0, status));
+
+            publish(i);
+        }
+
+        // Samples for the next tick's behaviors and integration of these agents
+        noise.fill(from, to, randomState);
+    }
+
+    // Next uniform sample in [0, 1) from the stream of agent i; safe from several threads for different agents
+    public double nextRandom(int i) {
+        return RandomStreams.nextDouble(randomState, i);
+    }
+
+    // Copies the slot's kinematics into the render buffer, call after changing them outside of integrate
+    public void publish(int i) {
+        renderBuffer.write(i, x[i], y[i], velocityX[i], velocityY[i]);
+    }
+
+    // Turns the velocity towards the acceleration by at most maxTurnRate * deltaTime, keeping the speed
+    private void limitTurn(int i, double deltaTime, Workspace workspace) {
+        double vx = velocityX[i], vy = velocityY[i];
+        double speed = Math.sqrt(vx * vx + vy * vy);
+
+        double currentX = headingX[i], currentY = headingY[i];
+        if (speed != 0) {
+            currentX = vx / speed;
+            currentY = vy / speed;
+        }
+
+        double desiredX = currentX, desiredY = currentY;
+        double accelerationLength = Math.sqrt(accelerationX[i] * accelerationX[i] + accelerationY[i] * accelerationY[i]);
+        if (accelerationLength != 0) {
+            desiredX = accelerationX[i] / accelerationLength;
+            desiredY = accelerationY[i] / accelerationLength;
+        }
+
+        if ((currentX == 0 && currentY == 0) || (desiredX == 0 && desiredY == 0)) return;
+
+        Vector2D turned = workspace.velocityTurn.setAngle(Math.min(Math.PI, getMaxTurnRate(i) * deltaTime))
+                .turnTowards(currentX, currentY, desiredX, desiredY, workspace.turned);
+        velocityX[i] = turned.x * speed;
+        velocityY[i] = turned.y * speed;
+    }
+
+    // Turns the heading towards the velocity by at most maxTurnRate * deltaTime
+    private void updateHeading(int i, double deltaTime, Workspace workspace) {
+        double vx = velocityX[i], vy = velocityY[i];
+        if (vx == 0 && vy == 0) return;
+
+        double speed = Math.sqrt(vx * vx + vy * vy);
+        double desiredX = vx / speed, desiredY = vy / speed;
+
+        if (headingX[i] == 0 && headingY[i] == 0) {
+            headingX[i] = desiredX;
+            headingY[i] = desiredY;
+            return;
+        }
+
+        Vector2D turned = workspace.headingTurn.setAngle(Math.min(Math.PI, getMaxTurnRate(i) * deltaTime))
+                .turnTowards(headingX[i], headingY[i], desiredX, desiredY, workspace.turned);
+        headingX[i] = turned.x;
+        headingY[i] = turned.y;
+    }
+
+    private void wrapBounds(int i) {
+        double margin = getRadius(i) * 0.5;
+        boolean wrapped = false;
+
+        if (x[i] < -margin) {
+            x[i] = worldWidth + margin;
+            wrapped = true;
+        }
+        if (x[i] > worldWidth + margin) {
+            x[i] = -margin;
+            wrapped = true;
+        }
+        if (y[i] < -margin) {
+            y[i] = worldHeight + margin;
+            wrapped = true;
+        }
+        if (y[i] > worldHeight + margin) {
+            y[i] = -margin;
+            wrapped = true;
+        }
+
+        if (wrapped) {
+            waypointX[i] = Double.NaN;
+            waypointY[i] = Double.NaN;
+        }
+    }
+
+    private static double distance(double ax, double ay, double bx, double by) {
+        double dx = bx - ax, dy = by - ay;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    // Permutes the slots like MortonOrder.sort permuted the agent list: slot i takes the agent from slot order[i].
+    // Views move along, so list position and slot stay equal.
+    public void reorder(int[] order, int count) {
+        if (count != this.count) return;
+
+        x = permute(x, order, count);
+        y = permute(y, order, count);
+        velocityX = permute(velocityX, order, count);
+        velocityY = permute(velocityY, order, count);
+        accelerationX = permute(accelerationX, order, count);
+        accelerationY = permute(accelerationY, order, count);
+        headingX = permute(headingX, order, count);
+        headingY = permute(headingY, order, count);
+        nervousness = permute(nervousness, order, count);
+        forceX = permute(forceX, order, count);
+        forceY = permute(forceY, order, count);
+        behaviorForceX = permute(behaviorForceX, order, count);
+        behaviorForceY = permute(behaviorForceY, order, count);
+        waypointX = permute(waypointX, order, count);
+        waypointY = permute(waypointY, order, count);
+        lifetime = permute(lifetime, order, count);
+
+        if (reorderRow.length != parameterRow.length) {
+            reorderRow = new int[parameterRow.length];
+            reorderId = new long[id.length];
+            reorderState = new long[randomState.length];
+            reorderType = new byte[type.length];
+            reorderViews = new Agent[views.length];
+        }
+        for (int i = 0; i < count; i++) {
+            reorderRow[i] = parameterRow[order[i]];
+            reorderId[i] = id[order[i]];
+            reorderState[i] = randomState[order[i]];
+            handles.move(reorderId[i], i);
+            reorderType[i] = type[order[i]];
+            reorderViews[i] = views[order[i]];
+            reorderViews[i].index = i;
+        }
+
+        int[] swapRow = parameterRow;
+        parameterRow = reorderRow;
+        reorderRow = swapRow;
+
+        long[] swapId = id;
+        id = reorderId;
+        reorderId = swapId;
+
+        long[] swapState = randomState;
+        randomState = reorderState;
+        reorderState = swapState;
+
+        byte[] swapType = type;
+        type = reorderType;
+        reorderType = swapType;
+
+        Agent[] swapViews = views;
+        views = reorderViews;
+        reorderViews = swapViews;
+
+        for (int i = 0; i < count; i++) {
+            publish(i);
+        }
+    }
+
+    // Writes the permuted values into the scratch array and keeps the old one as the next scratch
+    private double[] permute(double[] values, int[] order, int count) {
+        if (reorderScratch.length != values.length) {
+            reorderScratch = new double[values.length];
+        }
+        double[] permuted = reorderScratch;
+        for (int i = 0; i < count; i++) {
+            permuted[i] = values[order[i]];
+        }
+        reorderScratch = values;
+        return permuted;
+    }
+
+    private void allocate(int capacity) {
+        x = grow(x, capacity);
+        y = grow(y, capacity);
+        velocityX = grow(velocityX, capacity);
+        velocityY = grow(velocityY, capacity);
+        accelerationX = grow(accelerationX, capacity);
+        accelerationY = grow(accelerationY, capacity);
+        headingX = grow(headingX, capacity);
+        headingY = grow(headingY, capacity);
+        nervousness = grow(nervousness, capacity);
+        forceX = grow(forceX, capacity);
+        forceY = grow(forceY, capacity);
+        behaviorForceX = grow(behaviorForceX, capacity);
+        behaviorForceY = grow(behaviorForceY, capacity);
+        waypointX = grow(waypointX, capacity);
+        waypointY = grow(waypointY, capacity);
+        lifetime = grow(lifetime, capacity);
+        randomState = (randomState == null) ? new long[capacity] : Arrays.copyOf(randomState, capacity);
+        parameterRow = (parameterRow == null) ? new int[capacity] : Arrays.copyOf(parameterRow, capacity);
+        id = (id == null) ? new long[capacity] : Arrays.copyOf(id, capacity);
+        noise.ensureCapacity(capacity);
+        if (renderBuffer == null) {
+            renderBuffer = new AgentRenderBuffer(capacity);
+        } else {
+            renderBuffer.ensureCapacity(capacity);
+        }
+        type = (type == null) ? new byte[capacity] : Arrays.copyOf(type, capacity);
+        views = (views == null) ? new Agent[capacity] : Arrays.copyOf(views, capacity);
+    }
+
+    private static double[] grow(double[] values, int capacity) {
+        return (values == null) ? new double[capacity] : Arrays.copyOf(values, capacity);
+    }
+
+    public double getMass(int i) { return parameters.mass[parameterRow[i]]; }
+    public double getMaxSpeed(int i) { return parameters.maxSpeed[parameterRow[i]]; }
+    public double getMaxForce(int i) { return parameters.maxForce[parameterRow[i]]; }
+    public double getMaxTurnRate(int i) { return parameters.maxTurnRate[parameterRow[i]]; }
+    public double getSwarmDistance(int i) { return parameters.swarmDistance[parameterRow[i]]; }
+    public float getRadius(int i) { return parameters.radius[parameterRow[i]]; }
+
+    // Setting a value the agent already has keeps it on its species row
+    public void setMass(int i, double mass) {
+        if (mass == getMass(i)) return;
+        int row = ownRow(i);
+        parameters.mass[row] = mass;
+    }
+
+    public void setMaxSpeed(int i, double maxSpeed) {
+        if (maxSpeed == getMaxSpeed(i)) return;
+        int row = ownRow(i);
+        parameters.maxSpeed[row] = maxSpeed;
+    }
+
+    public void setMaxForce(int i, double maxForce) {
+        if (maxForce == getMaxForce(i)) return;
+        int row = ownRow(i);
+        parameters.maxForce[row] = maxForce;
+    }
+
+    public void setMaxTurnRate(int i, double maxTurnRate) {
+        if (maxTurnRate == getMaxTurnRate(i)) return;
+        int row = ownRow(i);
+        parameters.maxTurnRate[row] = maxTurnRate;
+    }
+
+    public void setSwarmDistance(int i, double swarmDistance) {
+        if (swarmDistance == getSwarmDistance(i)) return;
+        int row = ownRow(i);
+        parameters.swarmDistance[row] = swarmDistance;
+    }
+
+    public void setRadius(int i, float radius) {
+        if (radius == getRadius(i)) return;
+        int row = ownRow(i);
+        parameters.radius[row] = radius;
+    }
+
+    // The agent's override row, copied from its species row on the first change; may grow the table columns
+    private int ownRow(int i) {
+        int row = parameterRow[i];
+        if (parameters.isSpeciesRow(row)) {
+            row = parameters.copyRow(row);
+            parameterRow[i] = row;
+        }
+        return row;
+    }
+
+    public Agent getAgent(int index) {
+        return views[index];
+    }
+
+    public boolean isAlive(long agentId) {
+        return handles.isAlive(agentId);
+    }
+
+    // Slot of the agent with this id, -1 if it no longer exists
+    public int getSlot(long agentId) {
+        return handles.getSlot(agentId);
+    }
+
+    // Agent with this id wherever it is stored now, null if it no longer exists
+    public Agent getAgentById(long agentId) {
+        int slot = handles.getSlot(agentId);
+        return (slot < 0) ? null : views[slot];
+    }
+
+    public MosquitoType getType(int index) {
+        return TYPES[type[index]];
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getCapacity() {
+        return x.length;
+    }
+
+    public AgentRenderBuffer getRenderBuffer() {
+        return renderBuffer;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public NoiseBuffer getNoise() {
+        return noise;
+    }
+
+    public ForceKernels getKernels() {
+        return kernels;
+    }
+
+    public void setKernels(ForceKernels kernels) {
+        this.kernels = kernels;
+    }
+
+    public Integrator getIntegrator() {
+        return integrator;
+    }
+
+    public void setIntegrator(Integrator integrator) {
+        this.integrator = integrator;
+    }
+
+    public MosquitoSwarmBehavior getSwarmBehavior() {
+        return swarmBehavior;
+    }
+
+    public MosquitoCirclingBehavior getCirclingBehavior() {
+        return circlingBehavior;
+    }
+
+    public int getWorldWidth() {
+        return worldWidth;
+    }
+
+    public int getWorldHeight() {
+        return worldHeight;
+    }
+
+    public void setWorldBounds(int width, int height) {
+        this.worldWidth = width;
+        this.worldHeight = height;
+    }
+
+    // Mutable helpers of integrate, one set per thread
+    private static class Workspace {
+        // Turn limits as unit complex numbers, recomputed only when the limit changes (e.g. a different deltaTime)
+        private final Rotation2D velocityTurn = new Rotation2D();
+        private final Rotation2D headingTurn = new Rotation2D();
+        private final Vector2D turned = new Vector2D();
+        private ForceKernels kernels;
+
+        // State kernels of the same mode as shared, but not shared between threads
+        private ForceKernels kernels(ForceKernels shared) {
+            if (kernels == null || kernels.getMode() != shared.getMode()) {
+                kernels = ForceKernels.create(shared.getMode());
+            }
+            return kernels;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package simulation.agents;
+
+import simulation.kernels.ForceKernels;
+
+// Forward Euler: x += v * dt with the velocity from before the step, then v += a * dt. Each step adds energy
+// in proportion to dt², so it needs small ticks; kept as the reference IntegratorBenchmark measures against.
+public class ExplicitEulerIntegrator implements Integrator {
+    private final double damping;
+
+    public ExplicitEulerIntegrator(double damping) {
+        this.damping = damping;
+    }
+
+    // Moves first, so the drift below only has to truncate the kicked velocities
+    @Override
+    public void kick(AgentStore store, ForceKernels kernels, int from, int to, double deltaTime) {
+        kernels.advance(store.x, store.y, store.velocityX, store.velocityY, store.parameterRow,
+                store.parameters.maxSpeed, from, to, deltaTime);
+        kernels.integrateVelocity(store.forceX, store.forceY, store.parameterRow, store.parameters.mass,
+                store.parameters.maxForce, store.accelerationX, store.accelerationY,
+                store.velocityX, store.velocityY, from, to, deltaTime, Math.pow(damping, deltaTime));
+    }
+
+    @Override
+    public void drift(AgentStore store, ForceKernels kernels, int from, int to, double deltaTime) {
+        kernels.advance(store.x, store.y, store.velocityX, store.velocityY, store.parameterRow,
+                store.parameters.maxSpeed, from, to, 0.0);
+    }
+
+    @Override
+    public IntegratorType getType() {
+        return IntegratorType.EXPLICIT_EULER;
+    }
+}
@@ -0,0 +1,28 @@
+package simulation.agents;
+
+import simulation.kernels.ForceKernels;
+
+// Turns the forces in AgentStore.forceX/forceY into new velocities and positions for agents [from, to).
+// AgentStore.integrate calls kick, then limits the turn of the new velocities, then calls drift; the kernels do
+// the arithmetic. Implementations hold no per-agent state, so disjoint ranges may run on different threads.
+public interface Integrator {
+
+    // Forces to accelerations and velocities
+    void kick(AgentStore store, ForceKernels kernels, int from, int to, double deltaTime);
+
+    // Velocities truncated to maxSpeed and applied to the positions
+    void drift(AgentStore store, ForceKernels kernels, int from, int to, double deltaTime);
+
+    IntegratorType getType();
+
+    // damping is the fraction of the velocity left after one second without forces
+    static Integrator create(IntegratorType type, double damping) {
+        switch (type) {
+            case EXPLICIT_EULER:
+                return new ExplicitEulerIntegrator(damping);
+            case SEMI_IMPLICIT_EULER:
+            default:
+                return new SemiImplicitEulerIntegrator(damping);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package simulation.agents;
+
+public enum IntegratorType {
+    // Moves with the velocity from before the kick; gains energy every step, reference only
+    EXPLICIT_EULER,
+    // Kicks first and moves with the new velocity (symplectic Euler); stays bounded at several times the tick
+    SEMI_IMPLICIT_EULER
+}
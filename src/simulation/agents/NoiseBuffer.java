@@ -0,0 +1,116 @@
+package simulation.agents;
+
+import java.util.Arrays;
+
+// Random samples for the behavior jitter, generated in bulk: every agent owns a row of GAUSSIANS normal and
+// UNIFORMS uniform samples for the current tick. AgentStore.integrate refills the rows it consumed from the
+// agents' own random streams (see RandomStreams), so the behaviors of the next tick read fresh values by agent
+// index instead of drawing from a shared Random, and ranges may be filled by different threads.
+// Rows belong to slots, not agents: they are not moved on reorder or despawn, the samples are independent anyway.
+public class NoiseBuffer {
+    // Normal samples per agent
+    public static final int GAUSSIANS = 5;
+    public static final int NERVOUS_X = 0;
+    public static final int NERVOUS_Y = 1;
+    public static final int STATUS = 2;
+    public static final int JITTER_X = 3;
+    public static final int JITTER_Y = 4;
+
+    // Uniform samples in [0, 1) per agent. A chance test u < p also yields the direction: u / p is uniform in
+    // [0, 1) when the test passes, so an event and its angle need one sample.
+    public static final int UNIFORMS = 3;
+    public static final int SPIKE = 0;
+    public static final int CHAOS = 1;
+    public static final int FLIP = 2;
+
+    public double[] gaussian = new double[0];
+    public double[] uniform = new double[0];
+
+    // Ziggurat tables (Marsaglia and Tsang, 128 layers)
+    private static final int LAYERS = 128;
+    private static final double TAIL_START = 3.442619855899;
+    private static final long[] kn = new long[LAYERS];
+    private static final double[] wn = new double[LAYERS];
+    private static final double[] fn = new double[LAYERS];
+
+    static {
+        double m1 = 2147483648.0;
+        double dn = TAIL_START, tn = dn, vn = 9.91256303526217e-3;
+        double q = vn / Math.exp(-0.5 * dn * dn);
+
+        kn[0] = (long) ((dn / q) * m1);
+        kn[1] = 0;
+        wn[0] = q / m1;
+        wn[LAYERS - 1] = dn / m1;
+        fn[0] = 1.0;
+        fn[LAYERS - 1] = Math.exp(-0.5 * dn * dn);
+
+        for (int i = LAYERS - 2; i >= 1; i--) {
+            dn = Math.sqrt(-2.0 * Math.log(vn / dn + Math.exp(-0.5 * dn * dn)));
+            kn[i + 1] = (long) ((dn / tn) * m1);
+            tn = dn;
+            fn[i] = Math.exp(-0.5 * dn * dn);
+            wn[i] = dn / m1;
+        }
+    }
+
+    public void ensureCapacity(int agents) {
+        if (gaussian.length >= agents * GAUSSIANS) return;
+        gaussian = Arrays.copyOf(gaussian, agents * GAUSSIANS);
+        uniform = Arrays.copyOf(uniform, agents * UNIFORMS);
+    }
+
+    // New samples for the rows of agents [from, to), agent i drawing from the stream in state[i]
+    public void fill(int from, int to, long[] state) {
+        for (int i = from; i < to; i++) {
+            for (int k = i * GAUSSIANS, end = k + GAUSSIANS; k < end; k++) {
+                gaussian[k] = nextGaussian(state, i);
+            }
+            for (int k = i * UNIFORMS, end = k + UNIFORMS; k < end; k++) {
+                uniform[k] = RandomStreams.nextDouble(state, i);
+            }
+        }
+    }
+
+    public double gaussian(int agent, int sample) {
+        return gaussian[agent * GAUSSIANS + sample];
+    }
+
+    public double uniform(int agent, int sample) {
+        return uniform[agent * UNIFORMS + sample];
+    }
+
+    // Ziggurat: about 98.8% of the samples cost one random int, a table lookup and a multiplication
+    public static double nextGaussian(long[] state, int i) {
+        int hz = RandomStreams.nextInt(state, i);
+        int iz = hz & (LAYERS - 1);
+        if (Math.abs((long) hz) < kn[iz]) {
+            return hz * wn[iz];
+        }
+        return gaussianSlowPath(hz, iz, state, i);
+    }
+
+    // Wedges and tail of the ziggurat
+    private static double gaussianSlowPath(int hz, int iz, long[] state, int i) {
+        while (true) {
+            double x = hz * wn[iz];
+            if (iz == 0) {
+                double y;
+                do {
+                    x = -Math.log(1.0 - RandomStreams.nextDouble(state, i)) / TAIL_START;
+                    y = -Math.log(1.0 - RandomStreams.nextDouble(state, i));
+                } while (y + y < x * x);
+                return (hz > 0) ? TAIL_START + x : -TAIL_START - x;
+            }
+            if (fn[iz] + RandomStreams.nextDouble(state, i) * (fn[iz - 1] - fn[iz]) < Math.exp(-0.5 * x * x)) {
+                return x;
+            }
+
+            hz = RandomStreams.nextInt(state, i);
+            iz = hz & (LAYERS - 1);
+            if (Math.abs((long) hz) < kn[iz]) {
+                return hz * wn[iz];
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package simulation.agents;
+
+import java.util.Arrays;
+
+// Agent parameters as shared rows: row t holds the species defaults of MosquitoType t, and an agent whose
+// values differ gets a row of its own (copied from its species on the first change). AgentStore keeps only
+// a row index per agent, so parameters cost 4 bytes per agent unless they are overridden.
+public class ParameterTable {
+    private static final MosquitoType[] TYPES = MosquitoType.values();
+    public static final int SPECIES_ROWS = TYPES.length;
+
+    public double[] mass;
+    public double[] maxSpeed;
+    public double[] maxForce;
+    public double[] maxTurnRate;
+    public double[] swarmDistance;
+    public float[] radius;
+
+    private int rowCount;
+    private int[] freeRows = new int[0];
+    private int freeCount;
+
+    public ParameterTable() {
+        allocate(SPECIES_ROWS * 2);
+        for (MosquitoType type : TYPES) {
+            int row = type.ordinal();
+            mass[row] = SimulationConstants.DEFAULT_AGENT_MASS;
+            maxSpeed[row] = SimulationConstants.DEFAULT_MAX_SPEED;
+            maxForce[row] = SimulationConstants.DEFAULT_MAX_FORCE;
+            maxTurnRate[row] = Math.toRadians(300); // 300 degrees per second max turn rate
+            swarmDistance[row] = SimulationConstants.DEFAULT_SWARM_DISTANCE;
+            radius[row] = (float) SimulationConstants.DEFAULT_AGENT_RADIUS;
+        }
+        rowCount = SPECIES_ROWS;
+    }
+
+    public int getSpeciesRow(MosquitoType type) {
+        return type.ordinal();
+    }
+
+    public boolean isSpeciesRow(int row) {
+        return row < SPECIES_ROWS;
+    }
+
+    // New row with the values of source, reusing rows of removed overrides first
+    public int copyRow(int source) {
+        int row;
+        if (freeCount > 0) {
+            row = freeRows[--freeCount];
+        } else {
+            if (rowCount == mass.length) {
+                allocate(mass.length * 2);
+            }
+            row = rowCount++;
+        }
+
+        mass[row] = mass[source];
+        maxSpeed[row] = maxSpeed[source];
+        maxForce[row] = maxForce[source];
+        maxTurnRate[row] = maxTurnRate[source];
+        swarmDistance[row] = swarmDistance[source];
+        radius[row] = radius[source];
+        return row;
+    }
+
+    // Species rows are never released
+    public void releaseRow(int row) {
+        if (isSpeciesRow(row)) return;
+
+        if (freeCount == freeRows.length) {
+            freeRows = Arrays.copyOf(freeRows, Math.max(16, freeRows.length * 2));
+        }
+        freeRows[freeCount++] = row;
+    }
+
+    // Rows in use, species rows included
+    public int getRowCount() {
+        return rowCount - freeCount;
+    }
+
+    private void allocate(int capacity) {
+        mass = grow(mass, capacity);
+        maxSpeed = grow(maxSpeed, capacity);
+        maxForce = grow(maxForce, capacity);
+        maxTurnRate = grow(maxTurnRate, capacity);
+        swarmDistance = grow(swarmDistance, capacity);
+        radius = (radius == null) ? new float[capacity] : Arrays.copyOf(radius, capacity);
+    }
+
+    private static double[] grow(double[] values, int capacity) {
+        return (values == null) ? new double[capacity] : Arrays.copyOf(values, capacity);
+    }
+}
@@ -0,0 +1,60 @@
+package simulation.agents;
+
+import java.util.SplittableRandom;
+
+// All randomness of a run derives from one seed. Sequential users (initial placement, emitters) split
+// SplittableRandom streams off the root; every agent owns a SplitMix64 state in AgentStore.randomState,
+// seeded from the run seed and its spawn number, so per-agent draws do not depend on which thread
+// updates the agent or how the agent range is split.
+public class RandomStreams {
+    // Increment of the SplitMix64 sequence, as in SplittableRandom
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final long seed;
+    private final SplittableRandom root;
+
+    // Seed 0 picks a different seed every run
+    public RandomStreams(long seed) {
+        this.seed = resolveSeed(seed);
+        this.root = new SplittableRandom(this.seed);
+    }
+
+    public static long resolveSeed(long seed) {
+        return (seed != 0) ? seed : mix(System.nanoTime() ^ System.identityHashCode(RandomStreams.class));
+    }
+
+    // Independent stream for one sequential consumer; split in a fixed order for reproducible runs
+    public SplittableRandom split() {
+        return root.split();
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    // State of the stream of the n-th agent spawned in a run with this seed
+    public static long agentState(long seed, long n) {
+        return mix(seed + n * GOLDEN_GAMMA);
+    }
+
+    // Next value of the per-agent stream in state[i]; threads may draw concurrently for different i
+    public static long nextLong(long[] state, int i) {
+        return mix(state[i] += GOLDEN_GAMMA);
+    }
+
+    // Uniform in [0, 1)
+    public static double nextDouble(long[] state, int i) {
+        return (nextLong(state, i) >>> 11) * 0x1.0p-53;
+    }
+
+    public static int nextInt(long[] state, int i) {
+        return (int) (nextLong(state, i) >>> 32);
+    }
+
+    // SplitMix64 finalizer
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
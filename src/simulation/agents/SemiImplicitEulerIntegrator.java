@@ -0,0 +1,32 @@
+package simulation.agents;
+
+import simulation.kernels.ForceKernels;
+
+// Symplectic Euler: v += a * dt, then x += v * dt with the new velocity. The position update sees the force of
+// the same step, which keeps orbits and oscillations bounded instead of spiralling outwards, up to dt near
+// 2 / omega for an oscillation of angular frequency omega.
+public class SemiImplicitEulerIntegrator implements Integrator {
+    private final double damping;
+
+    public SemiImplicitEulerIntegrator(double damping) {
+        this.damping = damping;
+    }
+
+    @Override
+    public void kick(AgentStore store, ForceKernels kernels, int from, int to, double deltaTime) {
+        kernels.integrateVelocity(store.forceX, store.forceY, store.parameterRow, store.parameters.mass,
+                store.parameters.maxForce, store.accelerationX, store.accelerationY,
+                store.velocityX, store.velocityY, from, to, deltaTime, Math.pow(damping, deltaTime));
+    }
+
+    @Override
+    public void drift(AgentStore store, ForceKernels kernels, int from, int to, double deltaTime) {
+        kernels.advance(store.x, store.y, store.velocityX, store.velocityY, store.parameterRow,
+                store.parameters.maxSpeed, from, to, deltaTime);
+    }
+
+    @Override
+    public IntegratorType getType() {
+        return IntegratorType.SEMI_IMPLICIT_EULER;
+    }
+}
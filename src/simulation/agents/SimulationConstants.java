@@ -1,5 +1,8 @@
 package simulation.agents;
 
+import simulation.kernels.KernelMode;
+import simulation.spatial.NeighborIndexType;
+
 public class SimulationConstants {
     // Agent properties
     public static final double DEFAULT_AGENT_MASS = 0.5;
@@ -7,12 +10,75 @@ public class SimulationConstants {
     public static final double DEFAULT_MAX_FORCE = 150.0;
     public static final double DEFAULT_AGENT_RADIUS = 2.0;
     public static final double DEFAULT_SWARM_DISTANCE = 35.0;
+    // Fraction of the velocity left after one second without forces (0.995 per tick at 60 Hz)
+    public static final double VELOCITY_DAMPING = Math.pow(0.995, 60);
 
     // Window settings
     public static final int DEFAULT_WINDOW_WIDTH = 1280;
     public static final int DEFAULT_WINDOW_HEIGHT = 720;
+    // Frames per second the render thread is synced to
+    public static final int RENDER_FPS = 60;
+    // Fixed simulation ticks per second, independent of RENDER_FPS; every tick advances by 1 / SIMULATION_TICK_RATE
+    public static final int SIMULATION_TICK_RATE = 60;
+    // Ticks run at most at once to catch up after a stall, longer stalls are skipped instead of simulated
+    public static final int MAX_CATCH_UP_TICKS = 5;
+    // Draw agents blended between the last two ticks (one tick behind) instead of at the last tick
+    public static final boolean RENDER_INTERPOLATION = true;
 
     // Simple mosquito count (back to original)
     public static final int DEFAULT_MOSQUITO_COUNT = 100;
     public static final int MOSQUITO_SIZE = 5;
+
+    // Hatching site placed with the middle mouse button: mosquitoes per second, spread radius and how
+    // long the hatched mosquitoes live in seconds
+    public static final double HATCH_RATE = 20.0;
+    public static final double HATCH_RADIUS = 15.0;
+    public static final double HATCHED_LIFETIME = 30.0;
+
+    // Neighbor search: the grid suits evenly spread swarms, the quadtree swarms clumped around lights
+    public static final NeighborIndexType NEIGHBOR_INDEX = NeighborIndexType.GRID;
+    // Neighbors per agent in K_NEAREST mode
+    public static final int K_NEAREST_NEIGHBORS = 7;
+    // Neighbors each agent processes in dense clusters, 0 processes all of them: the nearest quarter plus a
+    // weighted random subset of the rest. NeighborSamplingDiagnostic measures 12 degrees mean separation and
+    // 16 degrees cohesion error at 64 (35 and 37 at 8). A nonzero limit also turns off the
+    // SYMMETRIC_PAIR_FORCES pass, which cannot sample.
+    public static final int MAX_SAMPLED_NEIGHBORS = 0;
+    // Extra radius of the cached neighbor lists, 0 rebuilds the neighbor set every tick
+    public static final double NEIGHBOR_LIST_SKIN = 10.0;
+    // Ticks between Z-order re-sorts of the agent list for memory locality, 0 disables sorting
+    public static final int MORTON_REORDER_INTERVAL = 120;
+    // Evaluate separation/cohesion once per neighbor pair instead of once per agent and neighbor
+    public static final boolean SYMMETRIC_PAIR_FORCES = true;
+    // Cohesion radius summed over quadtree centers of mass instead of neighbor by neighbor, 0 keeps the
+    // per-agent cohesion range (e.g. 300 lets loose groups drift towards each other)
+    public static final double FAR_COHESION_RADIUS = 0.0;
+    // Barnes-Hut opening criterion: a node smaller than theta times its distance counts as one pseudo-agent
+    public static final double FAR_FIELD_THETA = 0.5;
+    // Neighbor steering (separation, cohesion) is recomputed for one of this many agent buckets per tick, the
+    // others reuse their last one; lights and noise stay fresh every tick. 1 evaluates every agent every tick.
+    // Uses the per-agent neighbor rows instead of the pair pass. BehaviorBucketBenchmark measures a mean drift
+    // of 2, 3 and 4 force units (max force 150) with 2, 4 and 8 buckets, for 1.8x, 3.2x and 5x less work.
+    public static final int BEHAVIOR_BUCKETS = 1;
+    // Ticks between full evaluations that measure how far the cached steering drifted, 0 never measures
+    public static final int BEHAVIOR_DRIFT_INTERVAL = 60;
+    // Mean drift of the cached steering, in force units, above which the bucket count is halved (and below
+    // half of which it grows back up to BEHAVIOR_BUCKETS); 0 keeps BEHAVIOR_BUCKETS fixed
+    public static final double BEHAVIOR_DRIFT_BOUND = 3.0;
+    // Resolve hard contacts between agents (radius overlap) after each tick. Not a few milliseconds at 100k
+    // agents: the default window is then more than covered by agent discs, and CollisionBenchmark measures
+    // about 30 ms per frame on one core (uniform, 230k contacts) and 85 ms with swarms on lights (1.2M
+    // contacts), nearly all of it in the sweep. 20k agents take 7-8 ms.
+    public static final boolean AGENT_COLLISIONS = false;
+    // Force and integration kernels; VECTOR runs several agents per instruction through the incubating
+    // Vector API and needs --add-modules jdk.incubator.vector, otherwise it falls back to SCALAR
+    public static final KernelMode FORCE_KERNELS = KernelMode.SCALAR;
+    // How forces become velocities and positions each tick, see IntegratorType
+    public static final IntegratorType INTEGRATOR = IntegratorType.SEMI_IMPLICIT_EULER;
+    // Seed of every random sequence in a run, 0 picks a new one each start; the same seed reproduces a run
+    // independent of SIMULATION_WORKERS (the parallel phases, the pair pass included, do not depend on the
+    // split; RandomStreamBenchmark checks a whole run)
+    public static final long RANDOM_SEED = 0;
+    // Worker threads for the parallel simulation phases, 1 keeps everything on the calling thread
+    public static final int SIMULATION_WORKERS = Runtime.getRuntime().availableProcessors();
 }
\ No newline at end of file
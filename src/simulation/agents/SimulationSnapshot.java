@@ -0,0 +1,102 @@
+package simulation.agents;
+
+import simulation.environment.LightSource;
+import simulation.environment.LightSourceManager;
+import simulation.environment.WindManager;
+
+import java.util.Arrays;
+
+// Everything the renderer draws of one finished tick, copied out of the simulation: the agents' render floats
+// after the tick and before it (for interpolation), the lights and the wind indicator. The simulation thread
+// fills one with capture, then hands it over through a SnapshotBuffer; from then on it is only read, so drawing
+// never races the next tick.
+public class SimulationSnapshot {
+    // Per light: x, y, radius, flicker factor
+    public static final int FLOATS_PER_LIGHT = 4;
+
+    private final AgentRenderBuffer agents;
+    private final AgentRenderBuffer previous;
+    private int agentCount;
+    private double worldWidth, worldHeight;
+    private double[] lights = new double[0];
+    private int lightCount;
+
+    private long tick;
+    // Interpolation: how far real time was into the next tick at publishNanos, and the tick length
+    private double alpha;
+    private double step;
+    private long publishNanos;
+    private double mouseX, mouseY;
+    private double windX, windY, windStrength;
+
+    public SimulationSnapshot(int capacity) {
+        agents = new AgentRenderBuffer(capacity);
+        previous = new AgentRenderBuffer(capacity);
+    }
+
+    // Copies the state after tick, with previousState holding the same slots before it (null if there is no
+    // earlier state). alpha and step are the FixedStepClock's. Allocates only when the agent or light count
+    // outgrows the last one.
+    public void capture(AgentStore store, AgentRenderBuffer previousState, long tick, double alpha, double step,
+                        double mouseX, double mouseY) {
+        agentCount = store.getCount();
+        store.getRenderBuffer().copyTo(agents, agentCount);
+        (previousState != null ? previousState : store.getRenderBuffer()).copyTo(previous, agentCount);
+        worldWidth = store.getWorldWidth();
+        worldHeight = store.getWorldHeight();
+
+        lightCount = LightSourceManager.getLightSourceCount();
+        if (lights.length < lightCount * FLOATS_PER_LIGHT) {
+            lights = Arrays.copyOf(lights, lightCount * FLOATS_PER_LIGHT * 2);
+        }
+        for (int i = 0; i < lightCount; i++) {
+            LightSource light = LightSourceManager.getLightSource(i);
+            int base = i * FLOATS_PER_LIGHT;
+            lights[base] = light.getX();
+            lights[base + 1] = light.getY();
+            lights[base + 2] = light.getRadius();
+            lights[base + 3] = light.getFlickerFactor();
+        }
+
+        this.tick = tick;
+        this.alpha = alpha;
+        this.step = step;
+        this.publishNanos = System.nanoTime();
+        this.mouseX = mouseX;
+        this.mouseY = mouseY;
+        windX = WindManager.getWindX();
+        windY = WindManager.getWindY();
+        windStrength = WindManager.getWindStrength();
+    }
+
+    // The agents as of nowNanos, blended into out between the states before and after the tick. Rendering
+    // this way runs one tick behind the simulation but moves smoothly at any frame rate.
+    public AgentRenderBuffer interpolate(long nowNanos, AgentRenderBuffer out) {
+        out.interpolate(previous, agents, agentCount, getAlpha(nowNanos), worldWidth, worldHeight);
+        return out;
+    }
+
+    // Blend factor at nowNanos; stays at 1 when the next tick is late
+    public double getAlpha(long nowNanos) {
+        return Math.min(1.0, alpha + (nowNanos - publishNanos) / 1e9 / step);
+    }
+
+    public void renderLights() {
+        for (int i = 0; i < lightCount; i++) {
+            int base = i * FLOATS_PER_LIGHT;
+            LightSource.render(lights[base], lights[base + 1], lights[base + 2], lights[base + 3]);
+        }
+    }
+
+    public AgentRenderBuffer getAgents() { return agents; }
+    public AgentRenderBuffer getPreviousAgents() { return previous; }
+    public int getAgentCount() { return agentCount; }
+    public int getLightCount() { return lightCount; }
+    public long getTick() { return tick; }
+    public double getMouseX() { return mouseX; }
+    public double getMouseY() { return mouseY; }
+    // Wind direction times strength, 0 without wind
+    public double getWindX() { return windX; }
+    public double getWindY() { return windY; }
+    public double getWindStrength() { return windStrength; }
+}
@@ -0,0 +1,49 @@
+package simulation.agents;
+
+// Triple buffer between the simulation thread and the render thread. The producer fills getBack() and
+// publishes it, the consumer acquires the latest published snapshot. Neither side waits for the other:
+// publish and acquire only swap references, so a slow frame skips ticks and a slow tick repeats a frame.
+// One producer and one consumer thread.
+public class SnapshotBuffer {
+    private SimulationSnapshot back;
+    private SimulationSnapshot ready;
+    private SimulationSnapshot front;
+    // Whether ready holds a snapshot the consumer has not taken yet
+    private boolean fresh;
+    private long published;
+
+    public SnapshotBuffer(int capacity) {
+        back = new SimulationSnapshot(capacity);
+        ready = new SimulationSnapshot(capacity);
+        front = new SimulationSnapshot(capacity);
+    }
+
+    // The snapshot the producer may write; only valid until the next publish
+    public SimulationSnapshot getBack() {
+        return back;
+    }
+
+    public synchronized void publish() {
+        SimulationSnapshot filled = back;
+        back = ready;
+        ready = filled;
+        fresh = true;
+        published++;
+    }
+
+    // The latest published snapshot, or the previous one again if nothing new was published. The consumer
+    // may read it until its next acquire.
+    public synchronized SimulationSnapshot acquire() {
+        if (fresh) {
+            SimulationSnapshot latest = ready;
+            ready = front;
+            front = latest;
+            fresh = false;
+        }
+        return front;
+    }
+
+    public synchronized long getPublishedCount() {
+        return published;
+    }
+}
@@ -2,8 +2,7 @@ package simulation.behaviors;
 
 import engine.math.Vector2D;
 import simulation.agents.Agent;
-
-import java.util.List;
+import simulation.spatial.NeighborBuffer;
 
 public abstract class Behavior {
     protected double weight;
@@ -14,10 +13,10 @@ public abstract class Behavior {
         this.influenceDistance = influenceDistance;
     }
 
-    public abstract Vector2D calculateForce(Agent agent, List<Agent> neighbors);
+    public abstract Vector2D calculateForce(Agent agent, NeighborBuffer neighbors, int agentIndex);
 
-    public Vector2D getWeightedForce(Agent agent, List<Agent> neighbors) {
-        Vector2D force = calculateForce(agent, neighbors);
+    public Vector2D getWeightedForce(Agent agent, NeighborBuffer neighbors, int agentIndex) {
+        Vector2D force = calculateForce(agent, neighbors, agentIndex);
         force.mult(weight);
         return force;
     }
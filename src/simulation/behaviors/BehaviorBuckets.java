@@ -0,0 +1,130 @@
+package simulation.behaviors;
+
+import simulation.agents.AgentHandles;
+import simulation.agents.AgentStore;
+
+// Staggered behavior evaluation: agents are split into buckets by their handle index, and each tick only the
+// agents of one bucket get a fresh steering force (the neighbor part: separation and cohesion). The others
+// reuse the steering cached in AgentStore.behaviorForceX/Y, so it is at most count - 1 ticks old; light
+// attraction and noise are still computed for every agent every tick, and integration runs every tick.
+// Agents without a cached steering yet are always evaluated.
+// Every measureInterval ticks all agents are evaluated, and the cached steering they would have used is
+// compared against the fresh one; getRelativeDrift reports the result. With a drift bound, each measurement
+// also adapts the bucket count: halved while the mean drift exceeds the bound, doubled up to maxCount while
+// it stays below half of it. At one bucket nothing is cached to compare, so the next measurement probes two.
+public class BehaviorBuckets {
+    private final int maxCount;
+    private final int measureInterval;
+    private final double driftBound;
+    private int count;
+    private int current;
+    private long tick;
+    private boolean measuring;
+
+    // Since the last resetDrift
+    private double driftSum;
+    private double magnitudeSum;
+    private double maxDrift;
+    private long compared;
+
+    // Of the last measuring tick, for the adaptation
+    private double measuredDrift;
+    private long measuredAgents;
+
+    public BehaviorBuckets(int count, int measureInterval) {
+        this(count, measureInterval, 0.0);
+    }
+
+    // driftBound is a mean |cached - fresh| in force units, 0 keeps count fixed
+    public BehaviorBuckets(int maxCount, int measureInterval, double driftBound) {
+        this.maxCount = Math.max(1, maxCount);
+        this.measureInterval = measureInterval;
+        this.driftBound = driftBound;
+        this.count = this.maxCount;
+    }
+
+    // Moves on to the next bucket; call once per tick before the force phase
+    public void advance() {
+        if (measuring && driftBound > 0) {
+            adapt();
+        }
+        current = (int) (tick % count);
+        measuring = measureInterval > 0 && tick % measureInterval == 0;
+        tick++;
+    }
+
+    private void adapt() {
+        double meanDrift = measuredAgents > 0 ? measuredDrift / measuredAgents : 0.0;
+        if (meanDrift > driftBound) {
+            count = Math.max(1, count / 2);
+        } else if (meanDrift < driftBound * 0.5) {
+            count = Math.min(maxCount, count * 2);
+        }
+        measuredDrift = 0.0;
+        measuredAgents = 0;
+    }
+
+    // Whether agent i gets a fresh steering force this tick
+    public boolean isDue(AgentStore store, int i) {
+        return measuring || isScheduled(store, i);
+    }
+
+    // Whether agent i would get a fresh steering force this tick without a measurement
+    public boolean isScheduled(AgentStore store, int i) {
+        return getBucket(store.id[i]) == current || Double.isNaN(store.behaviorForceX[i]);
+    }
+
+    // Whether this tick evaluates everyone and compares against the cache
+    public boolean isMeasuring() {
+        return measuring;
+    }
+
+    public int getBucket(long agentId) {
+        return AgentHandles.getIndex(agentId) % count;
+    }
+
+    // Sum of |cached - fresh| and of |fresh| over compared agents, and the largest single |cached - fresh|;
+    // called once per range by the force phase, so it must be thread-safe
+    public synchronized void recordDrift(double drift, double magnitude, double max, int agents) {
+        driftSum += drift;
+        magnitudeSum += magnitude;
+        maxDrift = Math.max(maxDrift, max);
+        compared += agents;
+        measuredDrift += drift;
+        measuredAgents += agents;
+    }
+
+    // Mean |cached - fresh| relative to the mean fresh steering, 0 before the first measurement
+    public synchronized double getRelativeDrift() {
+        return magnitudeSum > 0 ? driftSum / magnitudeSum : 0.0;
+    }
+
+    // Mean |cached - fresh| in force units
+    public synchronized double getMeanDrift() {
+        return compared > 0 ? driftSum / compared : 0.0;
+    }
+
+    public synchronized double getMaxDrift() {
+        return maxDrift;
+    }
+
+    public synchronized long getComparedCount() {
+        return compared;
+    }
+
+    public synchronized void resetDrift() {
+        driftSum = 0.0;
+        magnitudeSum = 0.0;
+        maxDrift = 0.0;
+        compared = 0;
+    }
+
+    // Current bucket count, between 1 and getMaxCount
+    public int getCount() {
+        return count;
+    }
+
+    public int getMaxCount() {
+        return maxCount;
+    }
+}
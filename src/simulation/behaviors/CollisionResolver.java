@@ -0,0 +1,113 @@
+package simulation.behaviors;
+
+import simulation.agents.AgentStore;
+import simulation.agents.SimulationConstants;
+import simulation.spatial.PairVisitor;
+import simulation.spatial.SweepAndPrune;
+
+import java.util.Arrays;
+
+// Hard contacts between agents: overlapping agents are pushed apart along their center line and lose the
+// velocity component that drives them into each other. Corrections are summed first and applied afterwards,
+// so the result does not depend on the order in which contacts are found.
+public class CollisionResolver implements PairVisitor {
+    private final SweepAndPrune broadPhase;
+
+    // Per-agent parameters copied once per tick, so the contact kernel does not look up parameter rows
+    private double[] radius = new double[0];
+    private double[] mass = new double[0];
+    private double[] velocityX;
+    private double[] velocityY;
+    private double[] correctionX = new double[0];
+    private double[] correctionY = new double[0];
+    private double[] impulseX = new double[0];
+    private double[] impulseY = new double[0];
+    private long resolveNanos;
+
+    public CollisionResolver(double worldWidth, double worldHeight) {
+        this.broadPhase = new SweepAndPrune(SimulationConstants.DEFAULT_AGENT_RADIUS * 2, worldWidth, worldHeight);
+    }
+
+    public void resolve(AgentStore store) {
+        int count = store.getCount();
+        if (correctionX.length < count) {
+            radius = new double[count];
+            mass = new double[count];
+            correctionX = new double[count];
+            correctionY = new double[count];
+            impulseX = new double[count];
+            impulseY = new double[count];
+        } else {
+            Arrays.fill(correctionX, 0, count, 0.0);
+            Arrays.fill(correctionY, 0, count, 0.0);
+            Arrays.fill(impulseX, 0, count, 0.0);
+            Arrays.fill(impulseY, 0, count, 0.0);
+        }
+
+        for (int i = 0; i < count; i++) {
+            radius[i] = store.getRadius(i);
+            mass[i] = store.getMass(i);
+        }
+        // Nothing writes the velocities before all contacts are visited, the kernel reads the columns
+        velocityX = store.velocityX;
+        velocityY = store.velocityY;
+
+        broadPhase.update(store);
+        broadPhase.forEachContact(this);
+
+        long start = System.nanoTime();
+        double[] x = store.x, y = store.y;
+        for (int i = 0; i < count; i++) {
+            if (correctionX[i] == 0.0 && correctionY[i] == 0.0) continue;
+
+            x[i] += correctionX[i];
+            y[i] += correctionY[i];
+            velocityX[i] += impulseX[i];
+            velocityY[i] += impulseY[i];
+            store.publish(i);
+        }
+        resolveNanos = System.nanoTime() - start;
+    }
+
+    @Override
+    public void visit(int first, int second, double offsetX, double offsetY, double distanceSquare) {
+        // Coincident agents have no center line, separate them along x
+        double distance = Math.sqrt(distanceSquare);
+        double normalX = 1.0, normalY = 0.0;
+        if (distance > 0) {
+            normalX = offsetX / distance;
+            normalY = offsetY / distance;
+        }
+
+        // Each side takes half of the penetration, weighted by the other's mass
+        double penetration = radius[first] + radius[second] - distance;
+        double shareA = mass[second] / (mass[first] + mass[second]);
+        double shareB = 1.0 - shareA;
+        correctionX[first] -= normalX * penetration * shareA;
+        correctionY[first] -= normalY * penetration * shareA;
+        correctionX[second] += normalX * penetration * shareB;
+        correctionY[second] += normalY * penetration * shareB;
+
+        // Inelastic: remove the approaching part of the relative velocity
+        double approach = (velocityX[second] - velocityX[first]) * normalX
+                + (velocityY[second] - velocityY[first]) * normalY;
+        if (approach >= 0) return;
+
+        impulseX[first] += normalX * approach * shareA;
+        impulseY[first] += normalY * approach * shareA;
+        impulseX[second] -= normalX * approach * shareB;
+        impulseY[second] -= normalY * approach * shareB;
+    }
+
+    public void reorder(int[] order, int count) {
+        broadPhase.reorder(order, count);
+    }
+
+    public SweepAndPrune getBroadPhase() {
+        return broadPhase;
+    }
+
+    public long getResolveNanos() {
+        return resolveNanos;
+    }
+}
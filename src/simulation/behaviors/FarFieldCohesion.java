@@ -0,0 +1,63 @@
+package simulation.behaviors;
+
+import engine.math.Vector2D;
+import simulation.agents.Agent;
+import simulation.spatial.QuadTree;
+
+import java.util.List;
+
+// Cohesion over a radius far beyond SWARM_DISTANCE, using the center of mass stored in every quadtree node
+// so distant groups are summed as one pseudo-agent instead of one neighbor at a time
+public class FarFieldCohesion {
+    private final QuadTree tree;
+    private final double radius;
+    private final double theta;
+    private final Vector2D sum = new Vector2D();
+
+    private double[] cohesionX = new double[0];
+    private double[] cohesionY = new double[0];
+    private int[] cohesionCount = new int[0];
+
+    public FarFieldCohesion(double radius, double theta, double worldWidth, double worldHeight) {
+        this.tree = new QuadTree(worldWidth, worldHeight);
+        this.radius = radius;
+        this.theta = theta;
+    }
+
+    public void compute(List<Agent> agents) {
+        int count = agents.size();
+        if (cohesionX.length < count) {
+            cohesionX = new double[count];
+            cohesionY = new double[count];
+            cohesionCount = new int[count];
+        }
+
+        tree.rebuild(agents);
+        for (int i = 0; i < count; i++) {
+            cohesionCount[i] = tree.sumOffsets(i, radius, theta, sum);
+            cohesionX[i] = sum.x;
+            cohesionY[i] = sum.y;
+        }
+    }
+
+    // Unit direction towards the center of mass of everything within the radius, or a null vector
+    public Vector2D getCohesion(int agentIndex) {
+        return getCohesion(agentIndex, new Vector2D());
+    }
+
+    public Vector2D getCohesion(int agentIndex, Vector2D out) {
+        return out.set(cohesionX[agentIndex], cohesionY[agentIndex]).normalizeSafe();
+    }
+
+    public int getCohesionCount(int agentIndex) {
+        return cohesionCount[agentIndex];
+    }
+
+    public double getRadius() {
+        return radius;
+    }
+
+    public double getTheta() {
+        return theta;
+    }
+}
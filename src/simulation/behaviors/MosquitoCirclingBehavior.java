@@ -4,11 +4,10 @@ package simulation.behaviors;
 import engine.math.Vector2D;
 import engine.math.linearAlgebra;
 import simulation.agents.Agent;
+import simulation.agents.NoiseBuffer;
 import simulation.environment.LightSource;
 import simulation.environment.LightSourceManager;
-
-import java.util.List;
-import java.util.Random;
+import simulation.spatial.NeighborBuffer;
 
 public class MosquitoCirclingBehavior {
     private double separationWeight = 2.5;
@@ -17,149 +16,119 @@ public class MosquitoCirclingBehavior {
     private double circlingWeight = 5.0;
     private double lightAttractionWeight = 2.0;
 
-    private static Random random = new Random();
-
     private double preferredCirclingRadius = 60.0;
     private double circlingSpeed = 1.2;
     private double chaosIntensity = 0.8;
     private double directionChangeFrequency = 0.05;
 
-    public Vector2D getWeightedForce(Agent agent, List<Agent> neighbors) {
-        Vector2D totalForce = new Vector2D();
+    public Vector2D getWeightedForce(Agent agent, NeighborBuffer neighbors, int agentIndex) {
+        return getWeightedForce(agent, neighbors, agentIndex, new Vector2D());
+    }
 
-        Vector2D separation = getSeparation(agent, neighbors);
-        separation.mult(separationWeight);
-        totalForce.add(separation);
+    public Vector2D getWeightedForce(Agent agent, NeighborBuffer neighbors, int agentIndex, Vector2D out) {
+        getSeparation(agent, neighbors, agentIndex, out);
+        double separationX = out.x, separationY = out.y;
+        getCohesion(agent, neighbors, agentIndex, out);
+        return getWeightedForce(agent, separationX, separationY, out.x, out.y, out);
+    }
 
-        Vector2D cohesion = getCohesion(agent, neighbors);
-        cohesion.mult(cohesionWeight);
-        totalForce.add(cohesion);
+    // Separation and cohesion are unit directions (or null vectors), e.g. from the symmetric pair pass
+    public Vector2D getWeightedForce(Agent agent, Vector2D separation, Vector2D cohesion) {
+        return getWeightedForce(agent, separation.x, separation.y, cohesion.x, cohesion.y, new Vector2D());
+    }
 
-        Vector2D randomMovement = getModerateRandomMovement(agent);
-        randomMovement.mult(randomWeight);
-        totalForce.add(randomMovement);
+    // Same as above on plain coordinates, the result is written into out
+    public Vector2D getWeightedForce(Agent agent, double separationX, double separationY,
+                                     double cohesionX, double cohesionY, Vector2D out) {
+        getSteeringForce(agent, separationX, separationY, cohesionX, cohesionY, out);
+        return addFreshForce(agent, out);
+    }
 
-        Vector2D circlingForce = getCirclingForce(agent);
-        circlingForce.mult(circlingWeight);
-        totalForce.add(circlingForce);
+    // The part that needs the neighbors (separation, cohesion), which BehaviorBuckets may cache for a few ticks
+    public Vector2D getSteeringForce(Agent agent, double separationX, double separationY,
+                                     double cohesionX, double cohesionY, Vector2D out) {
+        out.set(separationX * separationWeight, separationY * separationWeight);
+        out.add(cohesionX * cohesionWeight, cohesionY * cohesionWeight);
+        return out;
+    }
 
-        Vector2D lightAttraction = getWeakLightAttraction(agent);
-        lightAttraction.mult(lightAttractionWeight);
-        totalForce.add(lightAttraction);
+    // The part computed every tick, added to out: the light attraction, jitter, spikes and chaos, and the
+    // circling, whose direction flips on a new sample each tick
+    public Vector2D addFreshForce(Agent agent, Vector2D out) {
+        addWeakLightAttraction(agent, lightAttractionWeight, out);
 
-        Vector2D chaosForce = getChaosForce(agent);
-        totalForce.add(chaosForce);
+        addModerateRandomMovement(agent, randomWeight, out);
 
-        return totalForce;
-    }
+        addCirclingForce(agent, circlingWeight, out);
 
-    private Vector2D getSeparation(Agent agent, List<Agent> neighbors) {
-        Vector2D separationForce = new Vector2D();
-        int count = 0;
+        addChaosForce(agent, out);
 
-        for (Agent neighbor : neighbors) {
-            double distance = agent.getDistanceTo(neighbor);
-            if (distance > 0 && distance < agent.SWARM_DISTANCE * 0.7) {
-                Vector2D diff = linearAlgebra.sub(agent.position, neighbor.position);
-                if (!diff.isNullvector()) {
-                    diff.normalize();
-                    double strength = 1.0 / (distance * distance + 0.1);
-                    diff.mult(strength);
-                    separationForce.add(diff);
-                    count++;
-                }
-            }
-        }
+        return out;
+    }
 
-        if (count > 0) {
-            separationForce.mult(1.0 / count);
-            if (!separationForce.isNullvector()) {
-                separationForce.normalize();
-            }
-        }
+    public double getSeparationDistance(Agent agent) {
+        return agent.getSwarmDistance() * 0.7;
+    }
 
-        return separationForce;
+    public double getCohesionDistance(Agent agent) {
+        return agent.getSwarmDistance();
     }
 
-    private Vector2D getCohesion(Agent agent, List<Agent> neighbors) {
-        Vector2D centerOfMass = new Vector2D();
-        int count = 0;
+    public Vector2D getSeparation(Agent agent, NeighborBuffer neighbors, int agentIndex) {
+        return getSeparation(agent, neighbors, agentIndex, new Vector2D());
+    }
 
-        for (Agent neighbor : neighbors) {
-            double distance = agent.getDistanceTo(neighbor);
-            if (distance > 0 && distance < agent.SWARM_DISTANCE) {
-                centerOfMass.add(neighbor.position);
-                count++;
-            }
-        }
+    public Vector2D getSeparation(Agent agent, NeighborBuffer neighbors, int agentIndex, Vector2D out) {
+        neighbors.separationSum(agent.getStore().getKernels(), agentIndex, getSeparationDistance(agent), out);
+        return out.normalizeSafe();
+    }
 
-        if (count > 0) {
-            centerOfMass.mult(1.0 / count);
-            Vector2D cohesionForce = linearAlgebra.sub(centerOfMass, agent.position);
-            if (!cohesionForce.isNullvector()) {
-                cohesionForce.normalize();
-                return cohesionForce;
-            }
-        }
+    public Vector2D getCohesion(Agent agent, NeighborBuffer neighbors, int agentIndex) {
+        return getCohesion(agent, neighbors, agentIndex, new Vector2D());
+    }
 
-        return new Vector2D();
+    // The summed offsets point the same way as the direction towards the neighbors' center of mass
+    public Vector2D getCohesion(Agent agent, NeighborBuffer neighbors, int agentIndex, Vector2D out) {
+        neighbors.offsetSum(agent.getStore().getKernels(), agentIndex, getCohesionDistance(agent), out);
+        return out.normalizeSafe();
     }
 
-    private Vector2D getModerateRandomMovement(Agent agent) {
+    private void addModerateRandomMovement(Agent agent, double weight, Vector2D out) {
         double intensity = 1.0;
-        Vector2D randomForce = new Vector2D();
-
-        randomForce.add(new Vector2D(
-                random.nextGaussian() * intensity,
-                random.nextGaussian() * intensity
-        ));
-
-        if (random.nextDouble() < 0.02) {
-            double angle = random.nextDouble() * 2 * Math.PI;
-            Vector2D impulse = new Vector2D(
-                    Math.cos(angle) * intensity,
-                    Math.sin(angle) * intensity
-            );
-            randomForce.add(impulse);
+        NoiseBuffer noise = agent.getStore().getNoise();
+        int i = agent.getIndex();
+
+        double randomX = noise.gaussian(i, NoiseBuffer.JITTER_X) * intensity;
+        double randomY = noise.gaussian(i, NoiseBuffer.JITTER_Y) * intensity;
+
+        double spike = noise.uniform(i, NoiseBuffer.SPIKE);
+        if (spike < 0.02) {
+            double angle = spike / 0.02 * 2 * Math.PI;
+            randomX += Math.cos(angle) * intensity;
+            randomY += Math.sin(angle) * intensity;
         }
 
-        return randomForce;
+        out.add(randomX * weight, randomY * weight);
     }
 
-    private Vector2D getCirclingForce(Agent agent) {
-        Vector2D totalCirclingForce = new Vector2D();
-
-        for (LightSource light : LightSourceManager.getLightSources()) {
-            double distance = linearAlgebra.euclideanDistance(agent.position, light.getPosition());
+    private void addCirclingForce(Agent agent, double weight, Vector2D out) {
+        double flip = agent.getStore().getNoise().uniform(agent.getIndex(), NoiseBuffer.FLIP);
+        for (int i = 0; i < LightSourceManager.getLightSourceCount(); i++) {
+            LightSource light = LightSourceManager.getLightSource(i);
+            double toLightX = light.getX() - agent.getX();
+            double toLightY = light.getY() - agent.getY();
+            double distance = linearAlgebra.length(toLightX, toLightY);
 
             if (distance < light.getRadius() * 4.0 && distance > 10.0) {
-                Vector2D circlingForce = calculateCirclingForceForLight(agent, light, distance);
-                totalCirclingForce.add(circlingForce);
+                addRadialForce(toLightX, toLightY, distance, weight, out);
+                // Golden ratio steps give every light its own uniform flip sample from the agent's one
+                double lightFlip = (flip + i * 0.6180339887498949) % 1.0;
+                addTangentialForce(toLightX, toLightY, distance, light.getIntensity(), lightFlip, weight, out);
             }
         }
-
-        return totalCirclingForce;
     }
 
-    private Vector2D calculateCirclingForceForLight(Agent agent, LightSource light, double distance) {
-        Vector2D toLight = linearAlgebra.sub(light.getPosition(), agent.position);
-        if (toLight.isNullvector()) return new Vector2D();
-
-        Vector2D radialForce = getRadialForce(toLight, distance);
-
-        Vector2D tangentialForce = getTangentialForce(toLight, distance, light.getIntensity());
-
-        Vector2D combinedForce = new Vector2D();
-        combinedForce.add(radialForce);
-        combinedForce.add(tangentialForce);
-
-        return combinedForce;
-    }
-
-    private Vector2D getRadialForce(Vector2D toLight, double distance) {
-        Vector2D radialDirection = new Vector2D(toLight);
-        radialDirection.normalize();
-
+    private void addRadialForce(double toLightX, double toLightY, double distance, double weight, Vector2D out) {
         double distanceError = distance - preferredCirclingRadius;
         double radialStrength;
 
@@ -169,56 +138,45 @@ public class MosquitoCirclingBehavior {
             radialStrength = Math.max(distanceError / 20.0, -2.0);
         }
 
-        radialDirection.mult(radialStrength);
-        return radialDirection;
+        double scale = radialStrength / distance * weight;
+        out.add(toLightX * scale, toLightY * scale);
     }
 
-    private Vector2D getTangentialForce(Vector2D toLight, double distance, double lightIntensity) {
-        Vector2D tangentialDirection = linearAlgebra.vertical(toLight);
-        tangentialDirection.normalize();
-
+    // The tangent is toLight turned by 90 degrees, divided by its length (distance)
+    private void addTangentialForce(double toLightX, double toLightY, double distance, double lightIntensity,
+                                    double flip, double weight, Vector2D out) {
         double optimalRadiusFactor = Math.exp(-Math.abs(distance - preferredCirclingRadius) / 25.0);
         double tangentialStrength = circlingSpeed * lightIntensity * optimalRadiusFactor;
 
-        if (random.nextDouble() < 0.1) {
-            tangentialDirection.mult(-1);
+        if (flip < 0.1) {
+            tangentialStrength = -tangentialStrength;
         }
 
-        tangentialDirection.mult(tangentialStrength);
-        return tangentialDirection;
+        double scale = tangentialStrength * weight / distance;
+        out.add(-toLightY * scale, toLightX * scale);
     }
 
-    private Vector2D getWeakLightAttraction(Agent agent) {
-        Vector2D totalAttraction = new Vector2D();
-
-        for (LightSource light : LightSourceManager.getLightSources()) {
-            double distance = linearAlgebra.euclideanDistance(agent.position, light.getPosition());
+    private void addWeakLightAttraction(Agent agent, double weight, Vector2D out) {
+        for (int i = 0; i < LightSourceManager.getLightSourceCount(); i++) {
+            LightSource light = LightSourceManager.getLightSource(i);
+            double toLightX = light.getX() - agent.getX();
+            double toLightY = light.getY() - agent.getY();
+            double distance = linearAlgebra.length(toLightX, toLightY);
 
             if (distance > preferredCirclingRadius * 1.5 && distance < light.getRadius() * 6.0) {
-                Vector2D attraction = linearAlgebra.sub(light.getPosition(), agent.position);
-                attraction.normalize();
-
                 double strength = (light.getIntensity() * 0.5) / (distance + 1);
-                attraction.mult(strength);
-
-                totalAttraction.add(attraction);
+                out.add(toLightX / distance * strength * weight, toLightY / distance * strength * weight);
             }
         }
-
-        return totalAttraction;
     }
 
-    private Vector2D getChaosForce(Agent agent) {
-        if (random.nextDouble() < directionChangeFrequency) {
-            double angle = random.nextDouble() * 2 * Math.PI;
-            double strength = chaosIntensity * agent.MAX_FORCE * 0.3;
+    private void addChaosForce(Agent agent, Vector2D out) {
+        double chaos = agent.getStore().getNoise().uniform(agent.getIndex(), NoiseBuffer.CHAOS);
+        if (chaos < directionChangeFrequency) {
+            double angle = chaos / directionChangeFrequency * 2 * Math.PI;
+            double strength = chaosIntensity * agent.getMaxForce() * 0.3;
 
-            return new Vector2D(
-                    Math.cos(angle) * strength,
-                    Math.sin(angle) * strength
-            );
+            out.add(Math.cos(angle) * strength, Math.sin(angle) * strength);
         }
-
-        return new Vector2D();
     }
-}
\ No newline at end of file
+}
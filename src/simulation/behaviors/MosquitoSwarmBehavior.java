@@ -2,12 +2,10 @@
 package simulation.behaviors;
 
 import engine.math.Vector2D;
-import engine.math.linearAlgebra;
 import simulation.agents.Agent;
+import simulation.agents.NoiseBuffer;
 import simulation.environment.LightSourceManager;
-
-import java.util.List;
-import java.util.Random;
+import simulation.spatial.NeighborBuffer;
 
 public class MosquitoSwarmBehavior {
     private double separationWeight = 8.0;
@@ -15,133 +13,111 @@ public class MosquitoSwarmBehavior {
     private double randomWeight = 2.5;
     private double lightAttractionWeight = 4.0;
 
-    private static Random random = new Random();
-
     private double chaosIntensity = 1.5;
     private double directionChangeFrequency = 0.1;
 
-    public Vector2D getWeightedForce(Agent agent, List<Agent> neighbors) {
-        Vector2D totalForce = new Vector2D();
+    public Vector2D getWeightedForce(Agent agent, NeighborBuffer neighbors, int agentIndex) {
+        return getWeightedForce(agent, neighbors, agentIndex, new Vector2D());
+    }
 
-        Vector2D separation = getSeparation(agent, neighbors);
-        separation.mult(separationWeight);
-        totalForce.add(separation);
+    public Vector2D getWeightedForce(Agent agent, NeighborBuffer neighbors, int agentIndex, Vector2D out) {
+        getSeparation(agent, neighbors, agentIndex, out);
+        double separationX = out.x, separationY = out.y;
+        getCohesion(agent, neighbors, agentIndex, out);
+        return getWeightedForce(agent, separationX, separationY, out.x, out.y, out);
+    }
 
-        Vector2D cohesion = getCohesion(agent, neighbors);
-        cohesion.mult(cohesionWeight);
-        totalForce.add(cohesion);
+    // Separation and cohesion are unit directions (or null vectors), e.g. from the symmetric pair pass
+    public Vector2D getWeightedForce(Agent agent, Vector2D separation, Vector2D cohesion) {
+        return getWeightedForce(agent, separation.x, separation.y, cohesion.x, cohesion.y, new Vector2D());
+    }
 
-        Vector2D randomMovement = getWildRandomMovement(agent);
-        randomMovement.mult(randomWeight);
-        totalForce.add(randomMovement);
+    // Same as above on plain coordinates, the result is written into out
+    public Vector2D getWeightedForce(Agent agent, double separationX, double separationY,
+                                     double cohesionX, double cohesionY, Vector2D out) {
+        getSteeringForce(agent, separationX, separationY, cohesionX, cohesionY, out);
+        return addFreshForce(agent, out);
+    }
 
-        Vector2D lightAttraction = getLightAttraction(agent);
-        lightAttraction.mult(lightAttractionWeight);
-        totalForce.add(lightAttraction);
+    // The part that needs the neighbors (separation, cohesion), which BehaviorBuckets may cache for a few ticks
+    public Vector2D getSteeringForce(Agent agent, double separationX, double separationY,
+                                     double cohesionX, double cohesionY, Vector2D out) {
+        out.set(separationX * separationWeight, separationY * separationWeight);
+        out.add(cohesionX * cohesionWeight, cohesionY * cohesionWeight);
+        return out;
+    }
 
-        Vector2D chaosForce = getChaosForce(agent);
-        totalForce.add(chaosForce);
+    // The part computed every tick, added to out: the light attraction, which is cheap but reverses as the
+    // agent crosses a light, and the jitter, spikes and chaos
+    public Vector2D addFreshForce(Agent agent, Vector2D out) {
+        LightSourceManager.addAttractionForce(agent.getX(), agent.getY(), lightAttractionWeight, out);
 
-        return totalForce;
-    }
+        addWildRandomMovement(agent, randomWeight, out);
 
-    private Vector2D getSeparation(Agent agent, List<Agent> neighbors) {
-        Vector2D separationForce = new Vector2D();
-        int count = 0;
-
-        for (Agent neighbor : neighbors) {
-            double distance = agent.getDistanceTo(neighbor);
-            if (distance > 0 && distance < agent.SWARM_DISTANCE * 0.8) {
-                Vector2D diff = linearAlgebra.sub(agent.position, neighbor.position);
-                if (!diff.isNullvector()) {
-                    diff.normalize();
-                    double strength = 1.0 / (distance * distance + 0.1);
-                    diff.mult(strength);
-                    separationForce.add(diff);
-                    count++;
-                }
-            }
-        }
+        addChaosForce(agent, out);
 
-        if (count > 0) {
-            separationForce.mult(1.0 / count);
-            separationForce.normalize();
-        }
+        return out;
+    }
 
-        return separationForce;
+    public double getSeparationDistance(Agent agent) {
+        return agent.getSwarmDistance() * 0.8;
     }
 
-    private Vector2D getCohesion(Agent agent, List<Agent> neighbors) {
-        Vector2D centerOfMass = new Vector2D();
-        int count = 0;
+    public double getCohesionDistance(Agent agent) {
+        return agent.getSwarmDistance() * 0.6;
+    }
 
-        for (Agent neighbor : neighbors) {
-            double distance = agent.getDistanceTo(neighbor);
-            if (distance > 0 && distance < agent.SWARM_DISTANCE * 0.6) {
-                centerOfMass.add(neighbor.position);
-                count++;
-            }
-        }
+    public Vector2D getSeparation(Agent agent, NeighborBuffer neighbors, int agentIndex) {
+        return getSeparation(agent, neighbors, agentIndex, new Vector2D());
+    }
 
-        if (count > 0) {
-            centerOfMass.mult(1.0 / count);
-            Vector2D cohesionForce = linearAlgebra.sub(centerOfMass, agent.position);
-            if (!cohesionForce.isNullvector()) {
-                cohesionForce.normalize();
-                return cohesionForce;
-            }
-        }
+    public Vector2D getSeparation(Agent agent, NeighborBuffer neighbors, int agentIndex, Vector2D out) {
+        neighbors.separationSum(agent.getStore().getKernels(), agentIndex, getSeparationDistance(agent), out);
+        return out.normalizeSafe();
+    }
 
-        return new Vector2D();
+    public Vector2D getCohesion(Agent agent, NeighborBuffer neighbors, int agentIndex) {
+        return getCohesion(agent, neighbors, agentIndex, new Vector2D());
     }
 
-    private Vector2D getWildRandomMovement(Agent agent) {
-        double intensity = 2.0;
+    // The summed offsets point the same way as the direction towards the neighbors' center of mass
+    public Vector2D getCohesion(Agent agent, NeighborBuffer neighbors, int agentIndex, Vector2D out) {
+        neighbors.offsetSum(agent.getStore().getKernels(), agentIndex, getCohesionDistance(agent), out);
+        return out.normalizeSafe();
+    }
 
-        Vector2D randomForce = new Vector2D();
+    private void addWildRandomMovement(Agent agent, double weight, Vector2D out) {
+        double intensity = 2.0;
+        NoiseBuffer noise = agent.getStore().getNoise();
+        int i = agent.getIndex();
 
-        randomForce.add(new Vector2D(
-                (random.nextGaussian() - 0.0) * intensity,
-                (random.nextGaussian() - 0.0) * intensity
-        ));
+        double randomX = noise.gaussian(i, NoiseBuffer.JITTER_X) * intensity;
+        double randomY = noise.gaussian(i, NoiseBuffer.JITTER_Y) * intensity;
 
-        if (random.nextDouble() < 0.03) {
-            double angle = random.nextDouble() * 2 * Math.PI;
-            Vector2D impulse = new Vector2D(
-                    Math.cos(angle) * intensity * 1.5,
-                    Math.sin(angle) * intensity * 1.5
-            );
-            randomForce.add(impulse);
+        double spike = noise.uniform(i, NoiseBuffer.SPIKE);
+        if (spike < 0.03) {
+            double angle = spike / 0.03 * 2 * Math.PI;
+            randomX += Math.cos(angle) * intensity * 1.5;
+            randomY += Math.sin(angle) * intensity * 1.5;
         }
 
-        double agentSeed = agent.position.x + agent.position.y;
+        double agentSeed = agent.getX() + agent.getY();
         double phase1 = agentSeed * 0.1;
         double phase2 = agentSeed * 0.15;
 
-        Vector2D oscillation = new Vector2D(
-                Math.sin(phase1) * intensity * 0.3,
-                Math.cos(phase2) * intensity * 0.3
-        );
-        randomForce.add(oscillation);
+        randomX += Math.sin(phase1) * intensity * 0.3;
+        randomY += Math.cos(phase2) * intensity * 0.3;
 
-        return randomForce;
+        out.add(randomX * weight, randomY * weight);
     }
 
-    private Vector2D getChaosForce(Agent agent) {
-        if (random.nextDouble() < directionChangeFrequency) {
-            double angle = random.nextDouble() * 2 * Math.PI;
-            double strength = chaosIntensity * agent.MAX_FORCE * 0.8;
+    private void addChaosForce(Agent agent, Vector2D out) {
+        double chaos = agent.getStore().getNoise().uniform(agent.getIndex(), NoiseBuffer.CHAOS);
+        if (chaos < directionChangeFrequency) {
+            double angle = chaos / directionChangeFrequency * 2 * Math.PI;
+            double strength = chaosIntensity * agent.getMaxForce() * 0.8;
 
-            return new Vector2D(
-                    Math.cos(angle) * strength,
-                    Math.sin(angle) * strength
-            );
+            out.add(Math.cos(angle) * strength, Math.sin(angle) * strength);
         }
-
-        return new Vector2D();
-    }
-
-    private Vector2D getLightAttraction(Agent agent) {
-        return LightSourceManager.getAttractionForce(agent);
     }
 }
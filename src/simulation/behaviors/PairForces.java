@@ -0,0 +1,260 @@
+package simulation.behaviors;
+
+import engine.math.Vector2D;
+import simulation.agents.Agent;
+import simulation.spatial.PairIndex;
+import simulation.spatial.PairVisitor;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+// Separation and cohesion sums of all agents, computed once per unordered neighbor pair.
+// The first indices are split into a number of chunks that depends only on the agent count, each chunk sums
+// into its own accumulator, and the chunk sums are added per agent in chunk order. Which worker runs which
+// chunk does not matter, so the sums are bit-identical for every worker count.
+public class PairForces {
+    // Fewer agents per chunk cost more in merging than they gain; the chunk count is capped so the per-chunk
+    // sums stay affordable (MAX_CHUNKS * 40 bytes per agent)
+    private static final int MIN_AGENTS_PER_CHUNK = 512;
+    private static final int MAX_CHUNKS = 16;
+
+    private final int workers;
+    private final RangeTask[] tasks;
+    private final Accumulator[] chunks = new Accumulator[MAX_CHUNKS];
+    private final Accumulator merged = new Accumulator();
+    // chunks[0] with a single chunk, otherwise merged
+    private Accumulator total = merged;
+    private int chunkCount;
+    private boolean mergePhase;
+    private PairIndex index;
+    private double pairRadius;
+
+    // Per-agent ranges, copied once per tick so the pair kernel does not dispatch on the mosquito type
+    private double[] separationDistance = new double[0];
+    private double[] cohesionDistance = new double[0];
+    private int count;
+
+    public PairForces(int workers) {
+        this.workers = Math.max(1, workers);
+        this.tasks = new RangeTask[this.workers];
+        for (int w = 0; w < this.workers; w++) {
+            tasks[w] = new RangeTask();
+        }
+        for (int c = 0; c < MAX_CHUNKS; c++) {
+            chunks[c] = new Accumulator();
+        }
+    }
+
+    public void compute(List<Agent> agents, PairIndex index) {
+        count = agents.size();
+        if (separationDistance.length < count) {
+            separationDistance = new double[count];
+            cohesionDistance = new double[count];
+        }
+
+        double radius = 0.0;
+        for (int i = 0; i < count; i++) {
+            Agent agent = agents.get(i);
+            separationDistance[i] = agent.getSeparationDistance();
+            cohesionDistance[i] = agent.getCohesionDistance();
+            radius = Math.max(radius, Math.max(separationDistance[i], cohesionDistance[i]));
+        }
+
+        this.index = index;
+        this.pairRadius = radius;
+        chunkCount = Math.min(MAX_CHUNKS, Math.max(1, count / MIN_AGENTS_PER_CHUNK));
+        for (int c = 0; c < chunkCount; c++) {
+            chunks[c].from = (int) ((long) count * c / chunkCount);
+            chunks[c].to = (int) ((long) count * (c + 1) / chunkCount);
+        }
+
+        // Worker w sums the chunks w, w + active, ...
+        mergePhase = false;
+        int active = Math.min(workers, chunkCount);
+        for (int w = 0; w < active; w++) {
+            tasks[w].from = w;
+            tasks[w].to = active;
+        }
+        run(active);
+        if (chunkCount == 1) {
+            total = chunks[0];
+            return;
+        }
+
+        // Then each worker adds up the chunk sums of a contiguous agent range, always in chunk order
+        mergePhase = true;
+        merged.grow(count);
+        for (int w = 0; w < active; w++) {
+            tasks[w].from = (int) ((long) count * w / active);
+            tasks[w].to = (int) ((long) count * (w + 1) / active);
+        }
+        run(active);
+        total = merged;
+    }
+
+    // The calling thread takes the first task itself; tasks are reused, so a tick allocates nothing
+    private void run(int active) {
+        if (active == 1) {
+            tasks[0].runRange();
+            return;
+        }
+        for (int w = 1; w < active; w++) {
+            tasks[w].reinitialize();
+            tasks[w].fork();
+        }
+        tasks[0].runRange();
+        for (int w = 1; w < active; w++) {
+            tasks[w].join();
+        }
+    }
+
+    // Unit direction away from close neighbors, or a null vector
+    public Vector2D getSeparation(int agentIndex) {
+        return getSeparation(agentIndex, new Vector2D());
+    }
+
+    public Vector2D getSeparation(int agentIndex, Vector2D out) {
+        return out.set(total.separationX[agentIndex], total.separationY[agentIndex]).normalizeSafe();
+    }
+
+    // Unit direction towards the neighbors' center of mass, or a null vector
+    public Vector2D getCohesion(int agentIndex) {
+        return getCohesion(agentIndex, new Vector2D());
+    }
+
+    public Vector2D getCohesion(int agentIndex, Vector2D out) {
+        return out.set(total.cohesionX[agentIndex], total.cohesionY[agentIndex]).normalizeSafe();
+    }
+
+    public int getSeparationCount(int agentIndex) {
+        return total.separationCount[agentIndex];
+    }
+
+    public int getCohesionCount(int agentIndex) {
+        return total.cohesionCount[agentIndex];
+    }
+
+    // Never serialized
+    @SuppressWarnings("serial")
+    private class RangeTask extends RecursiveAction {
+        // Summing: first chunk and chunk stride; merging: agent range
+        private int from, to;
+
+        @Override
+        protected void compute() {
+            runRange();
+        }
+
+        private void runRange() {
+            if (mergePhase) {
+                merged.merge(chunks, chunkCount, from, to);
+                return;
+            }
+            for (int c = from; c < chunkCount; c += to) {
+                Accumulator chunk = chunks[c];
+                chunk.reset(count);
+                index.forEachPair(chunk.from, chunk.to, pairRadius, chunk);
+            }
+        }
+    }
+
+    private class Accumulator implements PairVisitor {
+        private double[] separationX = new double[0];
+        private double[] separationY = new double[0];
+        private double[] cohesionX = new double[0];
+        private double[] cohesionY = new double[0];
+        private int[] separationCount = new int[0];
+        private int[] cohesionCount = new int[0];
+        // First indices summed by this chunk
+        private int from, to;
+        // Agents the sums were written for, [low, high]; empty when low > high
+        private int low, high = -1;
+
+        // New arrays are zeroed already
+        private boolean grow(int count) {
+            if (separationX.length >= count) return false;
+            separationX = new double[count];
+            separationY = new double[count];
+            cohesionX = new double[count];
+            cohesionY = new double[count];
+            separationCount = new int[count];
+            cohesionCount = new int[count];
+            return true;
+        }
+
+        // Clears what the last tick wrote
+        private void reset(int count) {
+            if (!grow(count) && low <= high) {
+                int end = Math.min(high + 1, count);
+                Arrays.fill(separationX, low, end, 0.0);
+                Arrays.fill(separationY, low, end, 0.0);
+                Arrays.fill(cohesionX, low, end, 0.0);
+                Arrays.fill(cohesionY, low, end, 0.0);
+                Arrays.fill(separationCount, low, end, 0);
+                Arrays.fill(cohesionCount, low, end, 0);
+            }
+            low = Integer.MAX_VALUE;
+            high = -1;
+        }
+
+        // Sums of agents [from, to) over the first chunkCount chunks, added in chunk order
+        // grow must have been called for the whole merge
+        private void merge(Accumulator[] chunks, int chunkCount, int from, int to) {
+            Arrays.fill(separationX, from, to, 0.0);
+            Arrays.fill(separationY, from, to, 0.0);
+            Arrays.fill(cohesionX, from, to, 0.0);
+            Arrays.fill(cohesionY, from, to, 0.0);
+            Arrays.fill(separationCount, from, to, 0);
+            Arrays.fill(cohesionCount, from, to, 0);
+
+            for (int c = 0; c < chunkCount; c++) {
+                Accumulator chunk = chunks[c];
+                int start = Math.max(from, chunk.low), end = Math.min(to, chunk.high + 1);
+                for (int i = start; i < end; i++) {
+                    separationX[i] += chunk.separationX[i];
+                    separationY[i] += chunk.separationY[i];
+                    cohesionX[i] += chunk.cohesionX[i];
+                    cohesionY[i] += chunk.cohesionY[i];
+                    separationCount[i] += chunk.separationCount[i];
+                    cohesionCount[i] += chunk.cohesionCount[i];
+                }
+            }
+        }
+
+        // Same weighting as the per-agent loops in the behaviors, applied to both partners at once
+        @Override
+        public void visit(int first, int second, double offsetX, double offsetY, double distanceSquare) {
+            if (distanceSquare <= 0) return;
+            low = Math.min(low, first);
+            high = Math.max(high, second);
+
+            double distance = Math.sqrt(distanceSquare);
+            double strength = 1.0 / (distanceSquare + 0.1);
+            double pushX = offsetX / distance * strength;
+            double pushY = offsetY / distance * strength;
+
+            if (distance < separationDistance[first]) {
+                separationX[first] -= pushX;
+                separationY[first] -= pushY;
+                separationCount[first]++;
+            }
+            if (distance < separationDistance[second]) {
+                separationX[second] += pushX;
+                separationY[second] += pushY;
+                separationCount[second]++;
+            }
+
+            if (distance < cohesionDistance[first]) {
+                cohesionX[first] += offsetX;
+                cohesionY[first] += offsetY;
+                cohesionCount[first]++;
+            }
+            if (distance < cohesionDistance[second]) {
+                cohesionX[second] -= offsetX;
+                cohesionY[second] -= offsetY;
+                cohesionCount[second]++;
+            }
+        }
+    }
+}
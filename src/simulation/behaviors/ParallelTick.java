@@ -0,0 +1,182 @@
+package simulation.behaviors;
+
+import engine.math.Vector2D;
+import simulation.agents.Agent;
+import simulation.agents.AgentStore;
+import simulation.spatial.NeighborBuffer;
+
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+// The behavior force and integration phases of a tick, each split into contiguous agent ranges on the common
+// ForkJoin pool. The tick is double-buffered by phase: computeForces only reads positions and writes the next
+// forces into AgentStore.forceX/forceY, integrate only touches each agent's own slot, and the join in between
+// swaps the roles. No agent sees a neighbor that already moved this tick, so the result is the same for every
+// split and worker count; PairForces keeps its sums independent of the worker count as well.
+public class ParallelTick {
+    // Smaller ranges cost more in task handoff than they gain
+    private static final int MIN_AGENTS_PER_TASK = 512;
+
+    private final int workers;
+    private final RangeTask[] tasks;
+
+    // Inputs of the phase being run
+    private boolean integratePhase;
+    private List<Agent> agents;
+    private PairForces pairForces;
+    private NeighborBuffer neighbors;
+    private FarFieldCohesion farField;
+    private BehaviorBuckets buckets;
+    private AgentStore store;
+    private double deltaTime;
+    private Vector2D mousePosition;
+
+    public ParallelTick(int workers) {
+        this.workers = Math.max(1, workers);
+        this.tasks = new RangeTask[this.workers];
+        for (int w = 0; w < this.workers; w++) {
+            tasks[w] = new RangeTask();
+        }
+    }
+
+    // Behavior forces of all agents from the pair sums when pairForces is given, otherwise from the neighbor
+    // rows; farField, if given, replaces the cohesion
+    public void computeForces(List<Agent> agents, PairForces pairForces, NeighborBuffer neighbors,
+                              FarFieldCohesion farField) {
+        computeForces(agents, pairForces, neighbors, farField, null);
+    }
+
+    // With buckets, only the agents due this tick are evaluated and the others reuse their cached force;
+    // neighbors needs rows for the due agents only
+    public void computeForces(List<Agent> agents, PairForces pairForces, NeighborBuffer neighbors,
+                              FarFieldCohesion farField, BehaviorBuckets buckets) {
+        this.integratePhase = false;
+        this.agents = agents;
+        this.pairForces = pairForces;
+        this.neighbors = neighbors;
+        this.farField = farField;
+        this.buckets = buckets;
+        run(agents.size());
+    }
+
+    public void integrate(AgentStore store, double deltaTime, Vector2D mousePosition) {
+        this.integratePhase = true;
+        this.store = store;
+        this.deltaTime = deltaTime;
+        this.mousePosition = mousePosition;
+        run(store.getCount());
+    }
+
+    private void run(int count) {
+        int active = Math.min(workers, Math.max(1, count / MIN_AGENTS_PER_TASK));
+        for (int w = 0; w < active; w++) {
+            tasks[w].from = (int) ((long) count * w / active);
+            tasks[w].to = (int) ((long) count * (w + 1) / active);
+        }
+        if (active == 1) {
+            tasks[0].runRange();
+            return;
+        }
+
+        // The calling thread takes the first range itself; tasks are reused, so a tick allocates nothing
+        for (int w = 1; w < active; w++) {
+            tasks[w].reinitialize();
+            tasks[w].fork();
+        }
+        tasks[0].runRange();
+        for (int w = 1; w < active; w++) {
+            tasks[w].join();
+        }
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    // Never serialized
+    @SuppressWarnings("serial")
+    private class RangeTask extends RecursiveAction {
+        private int from, to;
+
+        // Per range, the behaviors write into them
+        private final Vector2D separation = new Vector2D();
+        private final Vector2D cohesion = new Vector2D();
+        private final Vector2D force = new Vector2D();
+
+        @Override
+        protected void compute() {
+            runRange();
+        }
+
+        private void runRange() {
+            if (integratePhase) {
+                store.integrate(from, to, deltaTime, mousePosition);
+                return;
+            }
+
+            double drift = 0.0, magnitude = 0.0, maxDrift = 0.0;
+            int compared = 0;
+            for (int i = from; i < to; i++) {
+                Agent agent = agents.get(i);
+                AgentStore agentStore = agent.getStore();
+                if (buckets != null) {
+                    if (buckets.isDue(agentStore, i)) {
+                        getSteeringForce(agent, i);
+                        // Measuring ticks evaluate everyone; compare against the steering the agent would have
+                        // reused
+                        if (buckets.isMeasuring() && !buckets.isScheduled(agentStore, i)) {
+                            double difference = Math.hypot(force.x - agentStore.behaviorForceX[i],
+                                    force.y - agentStore.behaviorForceY[i]);
+                            drift += difference;
+                            magnitude += Math.hypot(force.x, force.y);
+                            maxDrift = Math.max(maxDrift, difference);
+                            compared++;
+                        }
+                        agentStore.behaviorForceX[i] = force.x;
+                        agentStore.behaviorForceY[i] = force.y;
+                    } else {
+                        force.set(agentStore.behaviorForceX[i], agentStore.behaviorForceY[i]);
+                    }
+                    // Only the neighbor steering is cached, lights and noise are added fresh every tick
+                    agent.setForce(agent.addFreshForce(force));
+                    continue;
+                }
+
+                if (pairForces != null) {
+                    if (farField != null) {
+                        farField.getCohesion(i, cohesion);
+                    } else {
+                        pairForces.getCohesion(i, cohesion);
+                    }
+                    agent.getBehaviorForce(pairForces.getSeparation(i, separation), cohesion, force);
+                } else if (farField != null) {
+                    agent.getBehaviorForce(agent.getSeparation(neighbors, i, separation),
+                            farField.getCohesion(i, cohesion), force);
+                } else {
+                    agent.getBehaviorForce(neighbors, i, force);
+                }
+                agent.setForce(force);
+            }
+            if (compared > 0) {
+                buckets.recordDrift(drift, magnitude, maxDrift, compared);
+            }
+        }
+
+        // Steering part of the behavior force of agent i into force, from the same inputs as the full force
+        private void getSteeringForce(Agent agent, int i) {
+            if (pairForces != null) {
+                pairForces.getSeparation(i, separation);
+            } else {
+                agent.getSeparation(neighbors, i, separation);
+            }
+            if (farField != null) {
+                farField.getCohesion(i, cohesion);
+            } else if (pairForces != null) {
+                pairForces.getCohesion(i, cohesion);
+            } else {
+                agent.getCohesion(neighbors, i, cohesion);
+            }
+            agent.getSteeringForce(separation, cohesion, force);
+        }
+    }
+}
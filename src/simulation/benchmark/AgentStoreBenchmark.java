@@ -0,0 +1,45 @@
+package simulation.benchmark;
+
+import engine.math.Vector2D;
+import simulation.agents.AgentStore;
+
+import java.util.Random;
+
+// Heap footprint per agent and throughput of the integration pass over the agent store.
+// Usage: AgentStoreBenchmark [agentCount] [frames]
+public class AgentStoreBenchmark {
+    private static final int WARMUP_FRAMES = 5;
+
+    public static void main(String[] args) {
+        int agentCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        long before = usedHeap();
+        AgentStore store = new AgentStore(agentCount);
+        BenchmarkWorld.populate(store, agentCount, new Random(1));
+        long after = usedHeap();
+        System.out.printf("%d agents: %.1f MB heap, %.0f bytes per agent (views included)%n",
+                agentCount, (after - before) / 1e6, (double) (after - before) / agentCount);
+
+        Vector2D mouse = new Vector2D(-1000, -1000);
+        for (int frame = 0; frame < WARMUP_FRAMES; frame++) {
+            store.integrate(0, agentCount, 1.0 / 60.0, mouse);
+        }
+
+        long start = System.nanoTime();
+        for (int frame = 0; frame < frames; frame++) {
+            store.integrate(0, agentCount, 1.0 / 60.0, mouse);
+        }
+        double millisPerFrame = (System.nanoTime() - start) / 1e6 / frames;
+        System.out.printf("integrate: %.2f ms/frame, %.1f ns/agent%n",
+                millisPerFrame, millisPerFrame * 1e6 / agentCount);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,89 @@
+package simulation.benchmark;
+
+import engine.math.Vector2D;
+import simulation.agents.Agent;
+import simulation.agents.AgentStore;
+import simulation.agents.SimulationConstants;
+import simulation.behaviors.PairForces;
+import simulation.behaviors.ParallelTick;
+import simulation.environment.LightSource;
+import simulation.environment.LightSourceManager;
+import simulation.environment.WindManager;
+import simulation.spatial.NeighborBuffer;
+import simulation.spatial.SpatialGrid;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+
+import static simulation.benchmark.BenchmarkWorld.HEIGHT;
+import static simulation.benchmark.BenchmarkWorld.WIDTH;
+
+// Bytes allocated per tick by the force and integration passes of SimulationLoop, for the pair pass and the
+// neighbor buffer path, on one worker and on several. Counts the allocations of all threads, including the
+// ForkJoin workers. Steady state should be close to zero.
+// Usage: AllocationBenchmark [agentCount] [frames] [workers]
+public class AllocationBenchmark {
+    private static final int WARMUP_FRAMES = 200;
+    private static final double DELTA_TIME = 1.0 / 60.0;
+
+    public static void main(String[] args) {
+        int agentCount = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int maxWorkers = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        AgentStore store = new AgentStore(agentCount);
+        List<Agent> agents = BenchmarkWorld.populate(store, agentCount, new Random(1));
+        LightSourceManager.addLightSource(new LightSource(new Vector2D(WIDTH / 2.0, HEIGHT / 2.0), 60.0, 25.0));
+
+        SpatialGrid grid = new SpatialGrid(SimulationConstants.DEFAULT_SWARM_DISTANCE, WIDTH, HEIGHT);
+        NeighborBuffer neighborBuffer = new NeighborBuffer();
+        Vector2D mouse = new Vector2D(WIDTH / 2.0, HEIGHT / 2.0);
+
+        for (int workers : new int[]{1, maxWorkers}) {
+            PairForces pairForces = new PairForces(workers);
+            ParallelTick parallelTick = new ParallelTick(workers);
+
+            for (boolean pairPass : new boolean[]{true, false}) {
+                long[] ids = null;
+                long allocated = 0;
+                for (int frame = 0; frame < WARMUP_FRAMES + frames; frame++) {
+                    if (frame == WARMUP_FRAMES) {
+                        // The worker threads exist by now
+                        ids = threads.getAllThreadIds();
+                        allocated = sum(threads.getThreadAllocatedBytes(ids));
+                    }
+
+                    WindManager.updateWind(mouse, false, DELTA_TIME);
+                    LightSourceManager.updateAll(DELTA_TIME);
+                    grid.rebuild(agents);
+                    if (pairPass) {
+                        pairForces.compute(agents, grid);
+                        parallelTick.computeForces(agents, pairForces, null, null);
+                    } else {
+                        neighborBuffer.fill(agents, grid);
+                        parallelTick.computeForces(agents, null, neighborBuffer, null);
+                    }
+                    parallelTick.integrate(store, DELTA_TIME, mouse);
+                }
+                allocated = sum(threads.getThreadAllocatedBytes(ids)) - allocated;
+
+                System.out.printf("%d worker%s, %s: %.0f bytes/tick, %.2f bytes/agent/tick%n",
+                        workers, workers == 1 ? "" : "s", pairPass ? "pair pass" : "neighbor buffer",
+                        (double) allocated / frames, (double) allocated / frames / agentCount);
+            }
+        }
+    }
+
+    // Threads that ended in between report -1
+    private static long sum(long[] values) {
+        long total = 0;
+        for (long value : values) {
+            if (value > 0) total += value;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,101 @@
+package simulation.benchmark;
+
+import engine.math.Vector2D;
+import simulation.agents.Agent;
+import simulation.agents.AgentStore;
+import simulation.agents.SimulationConstants;
+import simulation.behaviors.BehaviorBuckets;
+import simulation.behaviors.ParallelTick;
+import simulation.environment.LightSource;
+import simulation.environment.LightSourceManager;
+import simulation.spatial.NeighborBuffer;
+import simulation.spatial.SpatialGrid;
+
+import java.util.List;
+import java.util.Random;
+
+import static simulation.benchmark.BenchmarkWorld.HEIGHT;
+import static simulation.benchmark.BenchmarkWorld.WIDTH;
+
+// Behavior cost per tick (neighbor rows plus behavior forces) with the agents split into 1, 2, 4 and 8
+// BehaviorBuckets, against evaluating everyone, and how far the cached steering drifted from fresh steering:
+// mean |cached - fresh| relative to the mean fresh steering and in force units, and the largest single
+// difference. Lights and noise are computed fresh either way and stay out of the comparison. The last run
+// starts at 8 buckets and lets the drift bound pick the count.
+// A few lights keep the swarm moving, so the forces actually change.
+// Usage: BehaviorBucketBenchmark [agentCount] [ticks] [measureInterval] [driftBound]
+public class BehaviorBucketBenchmark {
+    private static final double DELTA_TIME = 1.0 / SimulationConstants.SIMULATION_TICK_RATE;
+    private static final int WARMUP_TICKS = 60;
+
+    public static void main(String[] args) {
+        int agentCount = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 240;
+        int measureInterval = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        double driftBound = args.length > 3 ? Double.parseDouble(args[3]) : SimulationConstants.BEHAVIOR_DRIFT_BOUND;
+
+        Random lights = new Random(3);
+        for (int k = 0; k < 6; k++) {
+            LightSourceManager.addLightSource(new LightSource(
+                    new Vector2D(lights.nextDouble() * WIDTH, lights.nextDouble() * HEIGHT), 60.0, 25.0));
+        }
+
+        System.out.printf("%d agents, %d ticks, drift measured every %d ticks%n", agentCount, ticks, measureInterval);
+        double baseMillis = 0;
+        for (int run = 0; run <= 4; run++) {
+            // Runs 0 to 3 fix the count at 1, 2, 4 and 8, run 4 adapts it
+            boolean adaptive = run == 4;
+            int bucketCount = adaptive ? 8 : 1 << run;
+            AgentStore store = new AgentStore(agentCount, 42);
+            List<Agent> agents = BenchmarkWorld.populate(store, agentCount, new Random(1));
+
+            SpatialGrid grid = new SpatialGrid(SimulationConstants.DEFAULT_SWARM_DISTANCE, WIDTH, HEIGHT);
+            NeighborBuffer neighbors = new NeighborBuffer();
+            ParallelTick tick = new ParallelTick(SimulationConstants.SIMULATION_WORKERS);
+            BehaviorBuckets buckets = bucketCount > 1
+                    ? new BehaviorBuckets(bucketCount, measureInterval, adaptive ? driftBound : 0.0) : null;
+            Vector2D mouse = new Vector2D(-1000, -1000);
+
+            long behaviorNanos = 0, integrateNanos = 0, activeBuckets = 0;
+            for (int t = 0; t < WARMUP_TICKS + ticks; t++) {
+                if (t == WARMUP_TICKS && buckets != null) buckets.resetDrift();
+                grid.rebuild(agents);
+
+                long start = System.nanoTime();
+                if (buckets != null) {
+                    buckets.advance();
+                    neighbors.fill(agents, grid, i -> buckets.isDue(store, i));
+                } else {
+                    neighbors.fill(agents, grid);
+                }
+                tick.computeForces(agents, null, neighbors, null, buckets);
+                long forces = System.nanoTime();
+                tick.integrate(store, DELTA_TIME, mouse);
+                long end = System.nanoTime();
+
+                if (t >= WARMUP_TICKS) {
+                    behaviorNanos += forces - start;
+                    integrateNanos += end - forces;
+                    activeBuckets += buckets != null ? buckets.getCount() : 1;
+                }
+            }
+
+            double millis = behaviorNanos / 1e6 / ticks;
+            if (bucketCount == 1) baseMillis = millis;
+            if (adaptive) {
+                System.out.printf("up to %d buckets, bound %.1f, %.1f on average:%n  ", bucketCount, driftBound,
+                        (double) activeBuckets / ticks);
+            } else {
+                System.out.printf("%d bucket%s: ", bucketCount, bucketCount == 1 ? " " : "s");
+            }
+            System.out.printf("behavior %.2f ms/tick (%.2fx), integrate %.2f ms/tick",
+                    millis, baseMillis / millis, integrateNanos / 1e6 / ticks);
+            if (buckets != null) {
+                System.out.printf(", drift %.1f%% of the mean steering, mean %.2f, max %.1f (max force %.0f)",
+                        buckets.getRelativeDrift() * 100, buckets.getMeanDrift(), buckets.getMaxDrift(),
+                        SimulationConstants.DEFAULT_MAX_FORCE);
+            }
+            System.out.println();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package simulation.benchmark;
+
+import engine.math.Vector2D;
+import simulation.agents.Agent;
+import simulation.agents.AgentBuilder;
+import simulation.agents.AgentStore;
+import simulation.agents.SimulationConstants;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Shared setup of the benchmarks: the default window as world and the agent layouts placed in it
+final class BenchmarkWorld {
+    static final int WIDTH = SimulationConstants.DEFAULT_WINDOW_WIDTH;
+    static final int HEIGHT = SimulationConstants.DEFAULT_WINDOW_HEIGHT;
+
+    private BenchmarkWorld() {}
+
+    static List<Agent> createUniform(int count, Random random) {
+        return populate(new AgentStore(count), count, random);
+    }
+
+    // Adds count agents at uniformly random positions to store
+    static List<Agent> populate(AgentStore store, int count, Random random) {
+        List<Agent> agents = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            agents.add(createAgent(store, random.nextDouble() * WIDTH, random.nextDouble() * HEIGHT));
+        }
+        return agents;
+    }
+
+    // Most agents packed around a few light positions, the rest spread out
+    static List<Agent> createClustered(int count, Random random) {
+        Vector2D[] lights = new Vector2D[4];
+        for (int i = 0; i < lights.length; i++) {
+            lights[i] = new Vector2D(random.nextDouble() * WIDTH, random.nextDouble() * HEIGHT);
+        }
+
+        AgentStore store = new AgentStore(count);
+        List<Agent> agents = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (random.nextDouble() < 0.8) {
+                Vector2D light = lights[random.nextInt(lights.length)];
+                double x = Math.floorMod((int) (light.x + random.nextGaussian() * 25.0), WIDTH);
+                double y = Math.floorMod((int) (light.y + random.nextGaussian() * 25.0), HEIGHT);
+                agents.add(createAgent(store, x + random.nextDouble(), y + random.nextDouble()));
+            } else {
+                agents.add(createAgent(store, random.nextDouble() * WIDTH, random.nextDouble() * HEIGHT));
+            }
+        }
+        return agents;
+    }
+
+    static Agent createAgent(AgentStore store, double x, double y) {
+        return new AgentBuilder()
+                .store(store)
+                .position(new Vector2D(x, y))
+                .worldBounds(WIDTH, HEIGHT)
+                .build();
+    }
+}
@@ -0,0 +1,124 @@
+package simulation.benchmark;
+
+import engine.math.Vector2D;
+import simulation.agents.Agent;
+import simulation.agents.AgentEmitter;
+import simulation.agents.AgentPopulation;
+import simulation.agents.AgentStore;
+import simulation.agents.SimulationConstants;
+import simulation.behaviors.CollisionResolver;
+import simulation.behaviors.PairForces;
+import simulation.spatial.MortonOrder;
+import simulation.spatial.SpatialGrid;
+import simulation.spatial.SweepAndPrune;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+import static simulation.benchmark.BenchmarkWorld.HEIGHT;
+import static simulation.benchmark.BenchmarkWorld.WIDTH;
+
+// Steady population with constant turnover: emitters hatch agents that expire after a fixed lifetime, so
+// churnPerSecond agents are spawned and despawned every second. Reports bytes allocated per tick once the
+// pools have grown, and checks that list, slots and ids stay consistent and that the collision broad phase,
+// which is patched instead of re-sorted when the count changes, still finds every contact.
+// Usage: ChurnBenchmark [agentCount] [churnPerSecond] [ticks]
+public class ChurnBenchmark {
+    private static final double DELTA_TIME = 1.0 / 60.0;
+    private static final int EMITTERS = 8;
+    private static final int WARMUP_TICKS = 600;
+
+    public static void main(String[] args) {
+        int agentCount = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        double churnPerSecond = args.length > 1 ? Double.parseDouble(args[1]) : 10_000;
+        int ticks = args.length > 2 ? Integer.parseInt(args[2]) : 600;
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        // Lifetime such that the emitters replace the whole population every lifetime seconds
+        double lifetime = agentCount / churnPerSecond;
+        AgentStore store = new AgentStore(agentCount);
+        Random random = new Random(1);
+        List<Agent> agents = BenchmarkWorld.populate(store, agentCount, random);
+        for (Agent agent : agents) {
+            agent.setLifetime(random.nextDouble() * lifetime);
+        }
+
+        AgentPopulation population = new AgentPopulation(store, agents, new SplittableRandom(2));
+        for (int e = 0; e < EMITTERS; e++) {
+            population.addEmitter(new AgentEmitter(random.nextDouble() * WIDTH, random.nextDouble() * HEIGHT,
+                    300.0, churnPerSecond / EMITTERS, lifetime, null));
+        }
+
+        SpatialGrid grid = new SpatialGrid(SimulationConstants.DEFAULT_SWARM_DISTANCE, WIDTH, HEIGHT);
+        PairForces pairForces = new PairForces(1);
+        CollisionResolver collisions = new CollisionResolver(WIDTH, HEIGHT);
+        MortonOrder mortonOrder = new MortonOrder(WIDTH, HEIGHT);
+        Vector2D mouse = new Vector2D(-1000, -1000);
+        Vector2D separation = new Vector2D();
+        Vector2D cohesion = new Vector2D();
+        Vector2D force = new Vector2D();
+
+        long allocated = 0, start = 0, spawnedBefore = 0;
+        int minCount = Integer.MAX_VALUE, maxCount = 0, inconsistent = 0;
+        for (int tick = 0; tick < WARMUP_TICKS + ticks; tick++) {
+            if (tick == WARMUP_TICKS) {
+                allocated = threads.getThreadAllocatedBytes(thread);
+                spawnedBefore = population.getSpawnCount();
+                start = System.nanoTime();
+            }
+
+            population.update(DELTA_TIME);
+            if (tick % SimulationConstants.MORTON_REORDER_INTERVAL == 0) {
+                int[] order = mortonOrder.sort(agents);
+                store.reorder(order, agents.size());
+                collisions.reorder(order, agents.size());
+            }
+
+            grid.rebuild(agents);
+            pairForces.compute(agents, grid);
+            for (int i = 0; i < agents.size(); i++) {
+                Agent agent = agents.get(i);
+                agent.setForce(agent.getBehaviorForce(pairForces.getSeparation(i, separation),
+                        pairForces.getCohesion(i, cohesion), force));
+            }
+            store.integrate(0, store.getCount(), DELTA_TIME, mouse);
+            collisions.resolve(store);
+
+            if (tick >= WARMUP_TICKS) {
+                minCount = Math.min(minCount, agents.size());
+                maxCount = Math.max(maxCount, agents.size());
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+        long churned = population.getSpawnCount() - spawnedBefore;
+
+        for (int i = 0; i < agents.size(); i++) {
+            Agent agent = agents.get(i);
+            if (agent.getIndex() != i || store.getAgent(i) != agent || store.getSlot(agent.getId()) != i) {
+                inconsistent++;
+            }
+        }
+
+        SweepAndPrune broadPhase = collisions.getBroadPhase();
+        broadPhase.update(store);
+        broadPhase.forEachContact((first, second, offsetX, offsetY, distanceSquare) -> { });
+        long[] expected = new long[1];
+        double reach = SimulationConstants.DEFAULT_AGENT_RADIUS * 2;
+        grid.rebuild(agents);
+        grid.forEachPair(0, agents.size(), reach, (first, second, offsetX, offsetY, distanceSquare) -> {
+            if (distanceSquare < reach * reach) expected[0]++;
+        });
+
+        System.out.printf("%d..%d agents, %.0f spawned and despawned per second, %.2f ms/tick%n",
+                minCount, maxCount, churned / (ticks * DELTA_TIME), nanos / 1e6 / ticks);
+        System.out.printf("%.1f bytes/tick allocated, %d inconsistent slots, contacts %s%n",
+                (double) allocated / ticks, inconsistent,
+                broadPhase.getContactCount() == expected[0] ? "ok" : "MISMATCH " + expected[0]);
+    }
+}
@@ -0,0 +1,98 @@
+package simulation.benchmark;
+
+import simulation.agents.Agent;
+import simulation.agents.AgentStore;
+import simulation.agents.SimulationConstants;
+import simulation.behaviors.CollisionResolver;
+import simulation.spatial.MortonOrder;
+import simulation.spatial.SpatialGrid;
+import simulation.spatial.SweepAndPrune;
+
+import java.util.List;
+import java.util.Random;
+
+import static simulation.benchmark.BenchmarkWorld.HEIGHT;
+import static simulation.benchmark.BenchmarkWorld.WIDTH;
+
+// Times the sweep-and-prune collision phases on agents that jitter a little every frame, and checks the
+// contact count of the first frame against a grid pair scan.
+// Usage: CollisionBenchmark [agentCount] [frames]
+public class CollisionBenchmark {
+    private static final int WARMUP_FRAMES = 20;
+    private static final double STEP = 1.5;
+
+    private static long gridContacts;
+
+    public static void main(String[] args) {
+        int agentCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+        run("uniform", BenchmarkWorld.createUniform(agentCount, new Random(1)), frames);
+        run("clustered", BenchmarkWorld.createClustered(agentCount, new Random(1)), frames);
+    }
+
+    private static void run(String name, List<Agent> agents, int frames) {
+        // The application keeps the list in Z-order, which the resolver's per-agent writes rely on for locality
+        AgentStore store = agents.get(0).getStore();
+        store.reorder(new MortonOrder(WIDTH, HEIGHT).sort(agents), agents.size());
+
+        Random random = new Random(2);
+        CollisionResolver resolver = new CollisionResolver(WIDTH, HEIGHT);
+        SweepAndPrune broadPhase = resolver.getBroadPhase();
+
+        long start = System.nanoTime();
+        broadPhase.update(store);
+        double firstSortMillis = (System.nanoTime() - start) / 1e6;
+        broadPhase.forEachContact((first, second, offsetX, offsetY, distanceSquare) -> { });
+        long expected = countContacts(agents);
+        String check = (broadPhase.getContactCount() == expected) ? "ok" : "MISMATCH " + expected;
+
+        double sort = 0, sweep = 0, resolve = 0;
+        long contacts = 0, tested = 0, swaps = 0, bandChanges = 0;
+        for (int frame = 0; frame < WARMUP_FRAMES + frames; frame++) {
+            jitter(store, random);
+            resolver.resolve(store);
+            if (frame < WARMUP_FRAMES) continue;
+
+            sort += broadPhase.getSortNanos() / 1e6;
+            sweep += broadPhase.getSweepNanos() / 1e6;
+            resolve += resolver.getResolveNanos() / 1e6;
+            contacts += broadPhase.getContactCount();
+            tested += broadPhase.getOverlapCount();
+            swaps += broadPhase.getSwapCount();
+            bandChanges += broadPhase.getBandChangeCount();
+        }
+
+        System.out.printf("%s layout, %d agents, %d bands, initial sort %.2f ms, contacts %s%n",
+                name, agents.size(), broadPhase.getBands(), firstSortMillis, check);
+        System.out.printf("  sort %.3f ms  sweep %.3f ms  resolve %.3f ms per frame%n",
+                sort / frames, sweep / frames, resolve / frames);
+        System.out.printf("  %.0f swaps, %.0f band changes, %.0f x-overlaps tested, %.0f contacts per frame%n%n",
+                (double) swaps / frames, (double) bandChanges / frames,
+                (double) tested / frames, (double) contacts / frames);
+    }
+
+    private static void jitter(AgentStore store, Random random) {
+        for (int i = 0; i < store.getCount(); i++) {
+            store.x[i] = wrap(store.x[i] + (random.nextDouble() - 0.5) * STEP, WIDTH);
+            store.y[i] = wrap(store.y[i] + (random.nextDouble() - 0.5) * STEP, HEIGHT);
+        }
+    }
+
+    private static double wrap(double value, double extent) {
+        if (value < 0) return value + extent;
+        if (value >= extent) return value - extent;
+        return value;
+    }
+
+    private static long countContacts(List<Agent> agents) {
+        SpatialGrid grid = new SpatialGrid(SimulationConstants.DEFAULT_AGENT_RADIUS * 4, WIDTH, HEIGHT);
+        grid.rebuild(agents);
+        gridContacts = 0;
+        grid.forEachPair(0, agents.size(), SimulationConstants.DEFAULT_AGENT_RADIUS * 2, (first, second, offsetX, offsetY, distanceSquare) -> {
+            double reach = agents.get(first).getRadius() + agents.get(second).getRadius();
+            if (distanceSquare < reach * reach) gridContacts++;
+        });
+        return gridContacts;
+    }
+}
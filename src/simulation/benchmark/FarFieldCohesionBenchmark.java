@@ -0,0 +1,75 @@
+package simulation.benchmark;
+
+import engine.math.Vector2D;
+import simulation.agents.Agent;
+import simulation.spatial.PairVisitor;
+import simulation.spatial.QuadTree;
+import simulation.spatial.SpatialGrid;
+
+import java.util.List;
+import java.util.Random;
+
+import static simulation.benchmark.BenchmarkWorld.HEIGHT;
+import static simulation.benchmark.BenchmarkWorld.WIDTH;
+
+// Times wide-radius cohesion summed neighbor by neighbor against the quadtree center-of-mass approximation,
+// and reports the direction error of the approximation for several opening angles.
+// Usage: FarFieldCohesionBenchmark [agentCount] [radius]
+public class FarFieldCohesionBenchmark {
+    private static final int REPEATS = 5;
+
+    private static double sumX;
+    private static double sumY;
+    private static final PairVisitor summer = (first, second, offsetX, offsetY, distanceSquare) -> {
+        sumX += offsetX;
+        sumY += offsetY;
+    };
+
+    public static void main(String[] args) {
+        int agentCount = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        double radius = args.length > 1 ? Double.parseDouble(args[1]) : 300.0;
+
+        List<Agent> agents = BenchmarkWorld.createClustered(agentCount, new Random(1));
+        int count = agents.size();
+
+        SpatialGrid grid = new SpatialGrid(radius, WIDTH, HEIGHT);
+        Vector2D[] exact = new Vector2D[count];
+        long start = System.nanoTime();
+        for (int r = 0; r < REPEATS; r++) {
+            grid.rebuild(agents);
+            for (int i = 0; i < count; i++) {
+                sumX = 0.0;
+                sumY = 0.0;
+                grid.findNeighbors(i, radius, summer);
+                exact[i] = new Vector2D(sumX, sumY);
+            }
+        }
+        double exactMillis = (System.nanoTime() - start) / 1e6 / REPEATS;
+
+        System.out.printf("clustered layout, %d agents, cohesion radius %.0f%n", count, radius);
+        System.out.printf("  %-20s %10.2f ms%n", "per neighbor", exactMillis);
+
+        QuadTree tree = new QuadTree(WIDTH, HEIGHT);
+        Vector2D sum = new Vector2D();
+        double[] error = new double[count];
+
+        for (double theta : new double[]{0.0, 0.3, 0.5, 0.8, 1.2}) {
+            Vector2D[] approximate = new Vector2D[count];
+            start = System.nanoTime();
+            for (int r = 0; r < REPEATS; r++) {
+                tree.rebuild(agents);
+                for (int i = 0; i < count; i++) {
+                    tree.sumOffsets(i, radius, theta, sum);
+                    approximate[i] = new Vector2D(sum);
+                }
+            }
+            double treeMillis = (System.nanoTime() - start) / 1e6 / REPEATS;
+
+            for (int i = 0; i < count; i++) {
+                error[i] = NeighborSamplingDiagnostic.angleError(exact[i], approximate[i]);
+            }
+            System.out.printf("  theta %-14.1f %10.2f ms   error mean %.3f deg, p95 %.3f deg%n", theta, treeMillis,
+                    NeighborSamplingDiagnostic.mean(error), NeighborSamplingDiagnostic.percentile(error, 0.95));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package simulation.benchmark;
+
+import engine.core.FixedStepClock;
+import engine.math.Vector2D;
+import simulation.agents.AgentStore;
+import simulation.agents.SimulationConstants;
+import simulation.spatial.SpatialGrid;
+
+import java.util.Random;
+
+import static simulation.benchmark.BenchmarkWorld.HEIGHT;
+import static simulation.benchmark.BenchmarkWorld.WIDTH;
+
+// Replays a frame-time trace with hitches (a 250 ms hitch every 2 s and one 3 s stall) through two identical
+// stores: one integrated with the raw frame time like the old loop, one with fixed ticks from a FixedStepClock.
+// Reports the largest step, the largest distance an agent covered in one step (what lets agents tunnel past
+// each other) and the most ticks run for a single frame.
+// Usage: FixedStepBenchmark [agentCount] [seconds]
+public class FixedStepBenchmark {
+    public static void main(String[] args) {
+        int agentCount = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        AgentStore variable = createStore(agentCount);
+        AgentStore fixed = createStore(agentCount);
+        FixedStepClock clock = new FixedStepClock(SimulationConstants.SIMULATION_TICK_RATE,
+                SimulationConstants.MAX_CATCH_UP_TICKS);
+        Vector2D mouse = new Vector2D(-1000, -1000);
+        double[] lastX = new double[agentCount], lastY = new double[agentCount];
+
+        double maxVariableStep = 0, maxVariableMove = 0, maxFixedMove = 0;
+        double variableTime = 0, fixedTime = 0;
+        int frames = 0, maxTicksPerFrame = 0;
+        long variableNanos = 0, fixedNanos = 0;
+
+        double realTime = 0, nextHitch = 2.0;
+        boolean stalled = false;
+        while (realTime < seconds) {
+            double frameTime = 1.0 / 60.0;
+            if (!stalled && realTime >= seconds * 0.5) {
+                frameTime = 3.0;
+                stalled = true;
+            } else if (realTime >= nextHitch) {
+                frameTime = 0.25;
+                nextHitch += 2.0;
+            }
+            realTime += frameTime;
+            frames++;
+
+            remember(variable, lastX, lastY);
+            long start = System.nanoTime();
+            variable.integrate(0, agentCount, frameTime, mouse);
+            variableNanos += System.nanoTime() - start;
+            maxVariableStep = Math.max(maxVariableStep, frameTime);
+            maxVariableMove = Math.max(maxVariableMove, maxMove(variable, lastX, lastY));
+            variableTime += frameTime;
+
+            int due = clock.advance(frameTime);
+            maxTicksPerFrame = Math.max(maxTicksPerFrame, due);
+            for (int t = 0; t < due; t++) {
+                remember(fixed, lastX, lastY);
+                start = System.nanoTime();
+                fixed.integrate(0, agentCount, clock.getStep(), mouse);
+                fixedNanos += System.nanoTime() - start;
+                maxFixedMove = Math.max(maxFixedMove, maxMove(fixed, lastX, lastY));
+                fixedTime += clock.getStep();
+            }
+        }
+
+        System.out.printf("%d agents, %d frames over %.1f s of real time%n", agentCount, frames, realTime);
+        System.out.printf("raw deltaTime: %d steps, largest %.3f s, largest move %.1f px, %.1f s simulated, %.2f ms%n",
+                frames, maxVariableStep, maxVariableMove, variableTime, variableNanos / 1e6);
+        System.out.printf("fixed %d Hz:   %d ticks, at most %d per frame, largest move %.1f px, %.1f s simulated "
+                        + "(%.1f s skipped), %.2f ms%n",
+                SimulationConstants.SIMULATION_TICK_RATE, clock.getTickCount(), maxTicksPerFrame, maxFixedMove,
+                fixedTime, clock.getDroppedTime(), fixedNanos / 1e6);
+        System.out.printf("agent radius %.1f px, swarm distance %.1f px%n",
+                SimulationConstants.DEFAULT_AGENT_RADIUS, SimulationConstants.DEFAULT_SWARM_DISTANCE);
+    }
+
+    private static AgentStore createStore(int agentCount) {
+        AgentStore store = new AgentStore(agentCount, 1);
+        BenchmarkWorld.populate(store, agentCount, new Random(1));
+        return store;
+    }
+
+    private static void remember(AgentStore store, double[] lastX, double[] lastY) {
+        System.arraycopy(store.x, 0, lastX, 0, store.getCount());
+        System.arraycopy(store.y, 0, lastY, 0, store.getCount());
+    }
+
+    // Largest distance moved since remember, across the wrapping world edges
+    private static double maxMove(AgentStore store, double[] lastX, double[] lastY) {
+        double max = 0;
+        for (int i = 0; i < store.getCount(); i++) {
+            double dx = SpatialGrid.wrap(store.x[i] - lastX[i], WIDTH);
+            double dy = SpatialGrid.wrap(store.y[i] - lastY[i], HEIGHT);
+            max = Math.max(max, Math.sqrt(dx * dx + dy * dy));
+        }
+        return max;
+    }
+}
@@ -0,0 +1,149 @@
+package simulation.benchmark;
+
+import engine.math.Vector2D;
+import simulation.kernels.ForceKernels;
+import simulation.kernels.KernelMode;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// Time per element of every force kernel, scalar against vector, and the largest difference of their results.
+// Run with --add-modules jdk.incubator.vector, otherwise both columns use the scalar kernels.
+// Usage: ForceKernelBenchmark [agentCount] [neighborsPerRow] [repetitions]
+public class ForceKernelBenchmark {
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int PARAMETER_ROWS = 16;
+
+    private interface Kernel {
+        void run(ForceKernels kernels);
+    }
+
+    public static void main(String[] args) {
+        int agentCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int rowLength = args.length > 1 ? Integer.parseInt(args[1]) : 24;
+        int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+
+        ForceKernels scalar = ForceKernels.create(KernelMode.SCALAR);
+        ForceKernels vector = ForceKernels.create(KernelMode.VECTOR);
+        System.out.printf("%d agents, %d neighbors per row, vector kernels: %s%n",
+                agentCount, rowLength, vector.getMode());
+
+        Random random = new Random(1);
+        double[] x = fill(new double[agentCount], random, 0, 1280);
+        double[] y = fill(new double[agentCount], random, 0, 720);
+        // Parameter rows like a ParameterTable with two species and a few overrides
+        double[] mass = fill(new double[PARAMETER_ROWS], random, 0.3, 0.8);
+        double[] maxForce = fill(new double[PARAMETER_ROWS], random, 100, 200);
+        double[] maxSpeed = fill(new double[PARAMETER_ROWS], random, 80, 160);
+        int[] parameterRow = new int[agentCount];
+        for (int i = 0; i < agentCount; i++) {
+            parameterRow[i] = random.nextDouble() < 0.05 ? 2 + random.nextInt(PARAMETER_ROWS - 2) : random.nextInt(2);
+        }
+        double[] forceX = fill(new double[agentCount], random, -300, 300);
+        double[] forceY = fill(new double[agentCount], random, -300, 300);
+        double[] velocityX = fill(new double[agentCount], random, -150, 150);
+        double[] velocityY = fill(new double[agentCount], random, -150, 150);
+        double[] accelerationX = new double[agentCount];
+        double[] accelerationY = new double[agentCount];
+
+        // Rows of neighbor offsets like a NeighborBuffer holds them, about half within separation range
+        int rows = agentCount / rowLength;
+        double[] offsetX = fill(new double[rows * rowLength], random, -35, 35);
+        double[] offsetY = fill(new double[rows * rowLength], random, -35, 35);
+        Vector2D sum = new Vector2D();
+        double[] sums = new double[rows * 3];
+
+        report("separationSum", rows * rowLength, repetitions, scalar, vector, sums, kernels -> {
+            for (int row = 0; row < rows; row++) {
+                int count = kernels.separationSum(offsetX, offsetY, row * rowLength, (row + 1) * rowLength, 28.0, sum);
+                sums[row * 3] = sum.x;
+                sums[row * 3 + 1] = sum.y;
+                sums[row * 3 + 2] = count;
+            }
+        });
+
+        report("offsetSum", rows * rowLength, repetitions, scalar, vector, sums, kernels -> {
+            for (int row = 0; row < rows; row++) {
+                int count = kernels.offsetSum(offsetX, offsetY, row * rowLength, (row + 1) * rowLength, 35.0, sum);
+                sums[row * 3] = sum.x;
+                sums[row * 3 + 1] = sum.y;
+                sums[row * 3 + 2] = count;
+            }
+        });
+
+        // The state kernels write into their arrays, every run starts from the same copies
+        double[] outX = new double[agentCount];
+        double[] outY = new double[agentCount];
+        double[] result = new double[agentCount * 2];
+
+        report("applyWind", agentCount, repetitions, scalar, vector, result, kernels -> {
+            System.arraycopy(forceX, 0, outX, 0, agentCount);
+            System.arraycopy(forceY, 0, outY, 0, agentCount);
+            kernels.applyWind(x, y, parameterRow, mass, outX, outY, 0, agentCount, 640, 360, 150, -80, 600);
+            System.arraycopy(outX, 0, result, 0, agentCount);
+            System.arraycopy(outY, 0, result, agentCount, agentCount);
+        });
+
+        report("integrateVelocity", agentCount, repetitions, scalar, vector, result, kernels -> {
+            System.arraycopy(velocityX, 0, outX, 0, agentCount);
+            System.arraycopy(velocityY, 0, outY, 0, agentCount);
+            kernels.integrateVelocity(forceX, forceY, parameterRow, mass, maxForce, accelerationX, accelerationY,
+                    outX, outY, 0, agentCount, 1.0 / 60.0, 0.995);
+            System.arraycopy(outX, 0, result, 0, agentCount);
+            System.arraycopy(outY, 0, result, agentCount, agentCount);
+        });
+
+        double[] positionX = new double[agentCount];
+        double[] positionY = new double[agentCount];
+        report("advance", agentCount, repetitions, scalar, vector, result, kernels -> {
+            System.arraycopy(x, 0, positionX, 0, agentCount);
+            System.arraycopy(y, 0, positionY, 0, agentCount);
+            System.arraycopy(velocityX, 0, outX, 0, agentCount);
+            System.arraycopy(velocityY, 0, outY, 0, agentCount);
+            kernels.advance(positionX, positionY, outX, outY, parameterRow, maxSpeed, 0, agentCount, 1.0 / 60.0);
+            System.arraycopy(positionX, 0, result, 0, agentCount);
+            System.arraycopy(positionY, 0, result, agentCount, agentCount);
+        });
+    }
+
+    // The copies in the state kernels are timed as well, so the speedup there is a lower bound
+    private static void report(String name, int elements, int repetitions, ForceKernels scalar, ForceKernels vector,
+                               double[] result, Kernel kernel) {
+        double scalarNanos = time(scalar, kernel, repetitions);
+        double[] expected = result.clone();
+        double vectorNanos = time(vector, kernel, repetitions);
+
+        double maxError = 0.0;
+        for (int i = 0; i < result.length; i++) {
+            double scale = Math.max(1.0, Math.abs(expected[i]));
+            maxError = Math.max(maxError, Math.abs(result[i] - expected[i]) / scale);
+        }
+
+        System.out.printf("%-18s scalar %6.2f ns/element, vector %6.2f ns/element, speedup %.2fx, max rel. error %.1e%n",
+                name, scalarNanos / elements, vectorNanos / elements, scalarNanos / vectorNanos, maxError);
+    }
+
+    private static double time(ForceKernels kernels, Kernel kernel, int repetitions) {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            for (int r = 0; r < repetitions; r++) {
+                kernel.run(kernels);
+            }
+        }
+
+        long[] samples = new long[repetitions];
+        for (int r = 0; r < repetitions; r++) {
+            long start = System.nanoTime();
+            kernel.run(kernels);
+            samples[r] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[repetitions / 2];
+    }
+
+    private static double[] fill(double[] values, Random random, double min, double max) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = min + random.nextDouble() * (max - min);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,74 @@
+package simulation.benchmark;
+
+import engine.math.Vector2D;
+import simulation.agents.Agent;
+import simulation.agents.AgentStore;
+import simulation.spatial.MortonOrder;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+
+import static simulation.benchmark.BenchmarkWorld.HEIGHT;
+import static simulation.benchmark.BenchmarkWorld.WIDTH;
+
+// Agent ids across Morton reorders: checks that every id still resolves to its agent after the slots moved,
+// then times id lookups and counts the bytes they allocate.
+// Usage: HandleBenchmark [agentCount] [reorders] [lookups]
+public class HandleBenchmark {
+    public static void main(String[] args) {
+        int agentCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int reorders = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int lookups = args.length > 2 ? Integer.parseInt(args[2]) : 10_000_000;
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        AgentStore store = new AgentStore(agentCount);
+        List<Agent> agents = BenchmarkWorld.populate(store, agentCount, new Random(1));
+
+        // What a recorder would keep: the id of each agent it follows, and the agent itself to compare against
+        long[] ids = new long[agentCount];
+        Agent[] expected = new Agent[agentCount];
+        for (int i = 0; i < agentCount; i++) {
+            ids[i] = agents.get(i).getId();
+            expected[i] = agents.get(i);
+        }
+
+        MortonOrder mortonOrder = new MortonOrder(WIDTH, HEIGHT);
+        Vector2D mouse = new Vector2D(-1000, -1000);
+        int moved = 0, mismatches = 0;
+        for (int r = 0; r < reorders; r++) {
+            for (int frame = 0; frame < 30; frame++) {
+                store.integrate(0, agentCount, 1.0 / 60.0, mouse);
+            }
+            int[] order = mortonOrder.sort(agents);
+            store.reorder(order, agentCount);
+
+            for (int i = 0; i < agentCount; i++) {
+                int slot = store.getSlot(ids[i]);
+                if (slot != i) moved++;
+                if (slot < 0 || store.getAgent(slot) != expected[i] || store.id[slot] != ids[i]) mismatches++;
+            }
+        }
+        System.out.printf("%d agents, %d reorders: %d lookups found a moved slot, %d mismatches%n",
+                agentCount, reorders, moved, mismatches);
+
+        long checksum = 0;
+        for (int k = 0; k < lookups; k++) {
+            checksum += store.getSlot(ids[k % agentCount]);
+        }
+
+        long allocated = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int k = 0; k < lookups; k++) {
+            checksum += store.getSlot(ids[(int) ((k * 2654435761L) % agentCount)]);
+        }
+        long nanos = System.nanoTime() - start;
+        allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+
+        System.out.printf("lookup: %.2f ns, %d bytes allocated over %d lookups (checksum %d)%n",
+                (double) nanos / lookups, allocated, lookups, checksum);
+    }
+}
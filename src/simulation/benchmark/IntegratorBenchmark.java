@@ -0,0 +1,122 @@
+package simulation.benchmark;
+
+import engine.math.Vector2D;
+import simulation.agents.AgentBuilder;
+import simulation.agents.AgentStore;
+import simulation.agents.Integrator;
+import simulation.agents.IntegratorType;
+import simulation.agents.SimulationConstants;
+import simulation.kernels.ForceKernels;
+
+// Runs each IntegratorType through two undamped test systems with exact solutions, at 1x to 4x the tick:
+//   spring: F = -m omega² r, agents on ellipses with 0.5 to 3 Hz
+//   orbit:  F = maxForce towards the center regardless of distance (a light's truncated attraction), agents
+//           on circles of 50 to 200 px
+// and reports the position error against the exact solution after the run (relative to the orbit size) and
+// the drift of the total energy, at the end and the largest along the way.
+// Usage: IntegratorBenchmark [agentCount] [seconds]
+public class IntegratorBenchmark {
+    private static final double CENTER_X = SimulationConstants.DEFAULT_WINDOW_WIDTH * 0.5;
+    private static final double CENTER_Y = SimulationConstants.DEFAULT_WINDOW_HEIGHT * 0.5;
+    private static final double MASS = SimulationConstants.DEFAULT_AGENT_MASS;
+    private static final double PULL = SimulationConstants.DEFAULT_MAX_FORCE;
+
+    public static void main(String[] args) {
+        int agentCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        double tick = 1.0 / SimulationConstants.SIMULATION_TICK_RATE;
+
+        System.out.printf("%d agents, %d s, no damping; error relative to the orbit size%n", agentCount, seconds);
+        System.out.printf("%-20s %-7s %4s %7s %12s %12s %12s%n",
+                "integrator", "system", "dt", "steps", "error", "energy end", "energy max");
+        for (IntegratorType type : IntegratorType.values()) {
+            for (boolean orbit : new boolean[]{false, true}) {
+                for (int multiple = 1; multiple <= 4; multiple++) {
+                    run(type, orbit, agentCount, seconds, tick * multiple, multiple);
+                }
+            }
+        }
+    }
+
+    private static void run(IntegratorType type, boolean orbit, int agentCount, int seconds, double dt,
+                            int multiple) {
+        Integrator integrator = Integrator.create(type, 1.0);
+        AgentStore store = new AgentStore(agentCount, 1);
+        double[] omega = new double[agentCount], sizeX = new double[agentCount], sizeY = new double[agentCount];
+
+        for (int i = 0; i < agentCount; i++) {
+            double phase = (double) i / agentCount;
+            double x, y, velocityY;
+            if (orbit) {
+                // Circle of radius r: v² / r = PULL / MASS
+                double radius = 50 + 150 * phase;
+                velocityY = Math.sqrt(PULL / MASS * radius);
+                omega[i] = velocityY / radius;
+                sizeX[i] = sizeY[i] = radius;
+            } else {
+                omega[i] = 2 * Math.PI * (0.5 + 2.5 * phase);
+                sizeX[i] = 100;
+                sizeY[i] = 60;
+                velocityY = sizeY[i] * omega[i];
+            }
+            x = CENTER_X + sizeX[i];
+            y = CENTER_Y;
+
+            new AgentBuilder().store(store).position(new Vector2D(x, y)).build();
+            store.setMass(i, MASS);
+            store.setMaxForce(i, 1e12);
+            store.setMaxSpeed(i, 1e12);
+            store.velocityX[i] = 0;
+            store.velocityY[i] = velocityY;
+        }
+
+        ForceKernels kernels = store.getKernels();
+        double startEnergy = energy(store, omega, orbit);
+        double maxDrift = 0;
+        int steps = (int) Math.round(seconds / dt);
+        for (int step = 0; step < steps; step++) {
+            for (int i = 0; i < agentCount; i++) {
+                double dx = store.x[i] - CENTER_X, dy = store.y[i] - CENTER_Y;
+                if (orbit) {
+                    double distance = Math.sqrt(dx * dx + dy * dy);
+                    store.forceX[i] = -PULL * dx / distance;
+                    store.forceY[i] = -PULL * dy / distance;
+                } else {
+                    store.forceX[i] = -MASS * omega[i] * omega[i] * dx;
+                    store.forceY[i] = -MASS * omega[i] * omega[i] * dy;
+                }
+            }
+            // The turn limit of AgentStore.integrate is steering, not physics, and stays out of the comparison
+            integrator.kick(store, kernels, 0, agentCount, dt);
+            integrator.drift(store, kernels, 0, agentCount, dt);
+            maxDrift = Math.max(maxDrift, Math.abs(energy(store, omega, orbit) / startEnergy - 1));
+        }
+
+        double time = steps * dt, error = 0;
+        for (int i = 0; i < agentCount; i++) {
+            double exactX = CENTER_X + sizeX[i] * Math.cos(omega[i] * time);
+            double exactY = CENTER_Y + sizeY[i] * Math.sin(omega[i] * time);
+            double dx = store.x[i] - exactX, dy = store.y[i] - exactY;
+            error += (dx * dx + dy * dy) / (sizeX[i] * sizeX[i]);
+        }
+        error = Math.sqrt(error / agentCount);
+        double endDrift = energy(store, omega, orbit) / startEnergy - 1;
+
+        System.out.printf("%-20s %-7s %3dx %7d %12.4g %+12.4g %12.4g%n", type, orbit ? "orbit" : "spring",
+                multiple, steps, error, endDrift, maxDrift);
+    }
+
+    private static double energy(AgentStore store, double[] omega, boolean orbit) {
+        double total = 0;
+        for (int i = 0; i < store.getCount(); i++) {
+            double dx = store.x[i] - CENTER_X, dy = store.y[i] - CENTER_Y;
+            double kinetic = 0.5 * MASS * (store.velocityX[i] * store.velocityX[i]
+                    + store.velocityY[i] * store.velocityY[i]);
+            double potential = orbit
+                    ? PULL * Math.sqrt(dx * dx + dy * dy)
+                    : 0.5 * MASS * omega[i] * omega[i] * (dx * dx + dy * dy);
+            total += kinetic + potential;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,78 @@
+package simulation.benchmark;
+
+import simulation.agents.Agent;
+import simulation.agents.SimulationConstants;
+import simulation.spatial.BruteForceIndex;
+import simulation.spatial.KNearestIndex;
+import simulation.spatial.NeighborBuffer;
+import simulation.spatial.NeighborIndex;
+import simulation.spatial.QuadTree;
+import simulation.spatial.SpatialGrid;
+
+import java.util.List;
+import java.util.Random;
+
+import static simulation.benchmark.BenchmarkWorld.HEIGHT;
+import static simulation.benchmark.BenchmarkWorld.WIDTH;
+
+// Compares rebuild + query cost of the neighbor indexes on uniform and light-clustered layouts.
+// Usage: NeighborIndexBenchmark [agentCount] [frames]
+public class NeighborIndexBenchmark {
+    private static final int WARMUP_FRAMES = 20;
+    private static final long REFERENCE = -1;
+    private static final long NOT_COMPARABLE = -2;
+
+    public static void main(String[] args) {
+        int agentCount = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        runLayout("uniform", BenchmarkWorld.createUniform(agentCount, new Random(1)), frames);
+        runLayout("clustered", BenchmarkWorld.createClustered(agentCount, new Random(1)), frames);
+    }
+
+    private static void runLayout(String name, List<Agent> agents, int frames) {
+        System.out.printf("%s layout, %d agents%n", name, agents.size());
+
+        long expected = run("brute force", new BruteForceIndex(), agents, frames, REFERENCE);
+        run("grid", new SpatialGrid(SimulationConstants.DEFAULT_SWARM_DISTANCE, WIDTH, HEIGHT), agents, frames, expected);
+        run("quadtree", new QuadTree(WIDTH, HEIGHT), agents, frames, expected);
+
+        int k = SimulationConstants.K_NEAREST_NEIGHBORS;
+        run(k + "-nearest", new KNearestIndex(k, SimulationConstants.DEFAULT_SWARM_DISTANCE * 0.5, WIDTH, HEIGHT),
+                agents, frames, NOT_COMPARABLE);
+        System.out.println();
+    }
+
+    private static long run(String name, NeighborIndex index, List<Agent> agents, int frames, long expected) {
+        NeighborBuffer neighbors = new NeighborBuffer();
+        long pairs = 0;
+
+        for (int frame = 0; frame < WARMUP_FRAMES; frame++) {
+            pairs = frame(index, agents, neighbors);
+        }
+
+        long start = System.nanoTime();
+        for (int frame = 0; frame < frames; frame++) {
+            pairs = frame(index, agents, neighbors);
+        }
+        double millisPerFrame = (System.nanoTime() - start) / 1_000_000.0 / frames;
+
+        String check;
+        if (expected == REFERENCE) {
+            check = "reference";
+        } else if (expected == NOT_COMPARABLE) {
+            check = "";
+        } else {
+            check = (pairs == expected) ? "ok" : "MISMATCH";
+        }
+        System.out.printf("  %-12s %9.3f ms/frame  %8.1f neighbors/agent  %s%n",
+                name, millisPerFrame, (double) pairs / agents.size(), check);
+        return pairs;
+    }
+
+    private static long frame(NeighborIndex index, List<Agent> agents, NeighborBuffer neighbors) {
+        index.rebuild(agents);
+        neighbors.fill(agents, index);
+        return neighbors.getSize();
+    }
+}
@@ -0,0 +1,108 @@
+package simulation.benchmark;
+
+import engine.math.Vector2D;
+import engine.math.linearAlgebra;
+import simulation.agents.Agent;
+import simulation.agents.MosquitoType;
+import simulation.agents.SimulationConstants;
+import simulation.behaviors.MosquitoCirclingBehavior;
+import simulation.behaviors.MosquitoSwarmBehavior;
+import simulation.spatial.NeighborBuffer;
+import simulation.spatial.SpatialGrid;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static simulation.benchmark.BenchmarkWorld.HEIGHT;
+import static simulation.benchmark.BenchmarkWorld.WIDTH;
+
+// Compares separation and cohesion directions computed from sampled neighborhoods with the exact ones,
+// to pick MAX_SAMPLED_NEIGHBORS with a known error.
+// Usage: NeighborSamplingDiagnostic [agentCount] [limit...]
+public class NeighborSamplingDiagnostic {
+
+    private static final MosquitoSwarmBehavior swarmBehavior = new MosquitoSwarmBehavior();
+    private static final MosquitoCirclingBehavior circlingBehavior = new MosquitoCirclingBehavior();
+
+    public static void main(String[] args) {
+        int agentCount = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int[] limits = {8, 16, 32, 64};
+        if (args.length > 1) {
+            limits = Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray();
+        }
+
+        List<Agent> agents = BenchmarkWorld.createClustered(agentCount, new Random(1));
+        SpatialGrid grid = new SpatialGrid(SimulationConstants.DEFAULT_SWARM_DISTANCE, WIDTH, HEIGHT);
+        grid.rebuild(agents);
+
+        NeighborBuffer exact = new NeighborBuffer();
+        exact.fill(agents, grid);
+        System.out.printf("clustered layout, %d agents, %.1f neighbors/agent%n",
+                agents.size(), (double) exact.getSize() / agents.size());
+        System.out.printf("  %6s %8s | %-28s | %-28s%n", "limit", "sampled", "separation error (deg)", "cohesion error (deg)");
+        System.out.printf("  %6s %8s | %8s %8s %10s | %8s %8s %10s%n",
+                "", "agents", "mean", "p95", "lost", "mean", "p95", "lost");
+
+        for (int limit : limits) {
+            NeighborBuffer sampled = new NeighborBuffer(limit);
+            sampled.fill(agents, grid);
+            report(agents, exact, sampled, limit);
+        }
+    }
+
+    private static void report(List<Agent> agents, NeighborBuffer exact, NeighborBuffer sampled, int limit) {
+        int count = agents.size();
+        double[] separationError = new double[count];
+        double[] cohesionError = new double[count];
+        int separationLost = 0;
+        int cohesionLost = 0;
+        int sampledAgents = 0;
+
+        for (int i = 0; i < count; i++) {
+            Agent agent = agents.get(i);
+            // Rows with more neighbors than the limit were cut down to a random subset
+            if (exact.getNeighborCount(i) > limit) sampledAgents++;
+
+            separationError[i] = angleError(separation(agent, exact, i), separation(agent, sampled, i));
+            cohesionError[i] = angleError(cohesion(agent, exact, i), cohesion(agent, sampled, i));
+            if (Double.isNaN(separationError[i])) separationLost++;
+            if (Double.isNaN(cohesionError[i])) cohesionLost++;
+        }
+
+        System.out.printf("  %6d %8d | %8.2f %8.2f %10d | %8.2f %8.2f %10d%n", limit, sampledAgents,
+                mean(separationError), percentile(separationError, 0.95), separationLost,
+                mean(cohesionError), percentile(cohesionError, 0.95), cohesionLost);
+    }
+
+    private static Vector2D separation(Agent agent, NeighborBuffer neighbors, int agentIndex) {
+        return (agent.getMosquitoType() == MosquitoType.CIRCLER)
+                ? circlingBehavior.getSeparation(agent, neighbors, agentIndex)
+                : swarmBehavior.getSeparation(agent, neighbors, agentIndex);
+    }
+
+    private static Vector2D cohesion(Agent agent, NeighborBuffer neighbors, int agentIndex) {
+        return (agent.getMosquitoType() == MosquitoType.CIRCLER)
+                ? circlingBehavior.getCohesion(agent, neighbors, agentIndex)
+                : swarmBehavior.getCohesion(agent, neighbors, agentIndex);
+    }
+
+    // Angle between the exact and the sampled direction; NaN when sampling lost (or invented) the force entirely
+    static double angleError(Vector2D exact, Vector2D sampled) {
+        if (exact.isNullvector() && sampled.isNullvector()) return 0.0;
+        if (exact.isNullvector() || sampled.isNullvector()) return Double.NaN;
+
+        double cosine = linearAlgebra.clamp(linearAlgebra.cosineFormula(exact, sampled), -1.0, 1.0);
+        return linearAlgebra.radToDegree(Math.acos(cosine));
+    }
+
+    static double mean(double[] values) {
+        return Arrays.stream(values).filter(v -> !Double.isNaN(v)).average().orElse(0.0);
+    }
+
+    static double percentile(double[] values, double quantile) {
+        double[] finite = Arrays.stream(values).filter(v -> !Double.isNaN(v)).sorted().toArray();
+        if (finite.length == 0) return 0.0;
+        return finite[(int) Math.min(finite.length - 1, Math.floor(quantile * finite.length))];
+    }
+}
@@ -0,0 +1,70 @@
+package simulation.benchmark;
+
+import simulation.agents.NoiseBuffer;
+import simulation.agents.RandomStreams;
+
+import java.util.Random;
+
+// Normal samples from the shared java.util.Random (polar method behind an atomic seed) against the bulk
+// ziggurat fill of NoiseBuffer, and the moments of the ziggurat samples as a sanity check.
+// Usage: NoiseBenchmark [agentCount] [ticks]
+public class NoiseBenchmark {
+    public static void main(String[] args) {
+        int agentCount = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        int samplesPerTick = agentCount * (NoiseBuffer.GAUSSIANS + NoiseBuffer.UNIFORMS);
+
+        Random random = new Random(1);
+        double[] target = new double[samplesPerTick];
+        double randomNanos = Double.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (int tick = 0; tick < ticks; tick++) {
+                for (int k = 0; k < samplesPerTick; k++) {
+                    target[k] = random.nextGaussian();
+                }
+            }
+            randomNanos = Math.min(randomNanos, (double) (System.nanoTime() - start) / ticks);
+        }
+
+        NoiseBuffer noise = new NoiseBuffer();
+        noise.ensureCapacity(agentCount);
+        long[] state = new long[agentCount];
+        for (int i = 0; i < agentCount; i++) {
+            state[i] = RandomStreams.agentState(1, i);
+        }
+        double bufferNanos = Double.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (int tick = 0; tick < ticks; tick++) {
+                noise.fill(0, agentCount, state);
+            }
+            bufferNanos = Math.min(bufferNanos, (double) (System.nanoTime() - start) / ticks);
+        }
+
+        System.out.printf("%d agents, %d samples per tick%n", agentCount, samplesPerTick);
+        System.out.printf("Random.nextGaussian: %.3f ms/tick, %.2f ns/sample%n",
+                randomNanos / 1e6, randomNanos / samplesPerTick);
+        System.out.printf("NoiseBuffer.fill:    %.3f ms/tick, %.2f ns/sample, %.1fx faster%n",
+                bufferNanos / 1e6, bufferNanos / samplesPerTick, randomNanos / bufferNanos);
+
+        // Moments over many samples: mean 0, variance 1, skewness 0, kurtosis 3, P(|x| > 3) = 0.0027
+        int samples = 20_000_000;
+        double sum = 0, sum2 = 0, sum3 = 0, sum4 = 0;
+        long beyond3 = 0;
+        for (int k = 0; k < samples; k++) {
+            double x = NoiseBuffer.nextGaussian(state, k % agentCount);
+            double x2 = x * x;
+            sum += x;
+            sum2 += x2;
+            sum3 += x2 * x;
+            sum4 += x2 * x2;
+            if (Math.abs(x) > 3.0) beyond3++;
+        }
+        double mean = sum / samples;
+        double variance = sum2 / samples - mean * mean;
+        System.out.printf("ziggurat moments: mean %.4f, variance %.4f, skewness %.4f, kurtosis %.4f, P(|x|>3) %.5f%n",
+                mean, variance, sum3 / samples / Math.pow(variance, 1.5), sum4 / samples / (variance * variance),
+                (double) beyond3 / samples);
+    }
+}
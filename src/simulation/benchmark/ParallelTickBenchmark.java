@@ -0,0 +1,86 @@
+package simulation.benchmark;
+
+import engine.math.Vector2D;
+import simulation.agents.Agent;
+import simulation.agents.AgentStore;
+import simulation.agents.SimulationConstants;
+import simulation.behaviors.PairForces;
+import simulation.behaviors.ParallelTick;
+import simulation.spatial.NeighborBuffer;
+import simulation.spatial.SpatialGrid;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static simulation.benchmark.BenchmarkWorld.HEIGHT;
+import static simulation.benchmark.BenchmarkWorld.WIDTH;
+
+// Time per tick of the neighbor search and the parallel force and integration phases for 1, 2, 4 ... workers
+// (up to the core count, at least 8, unless given), for the symmetric pair pass and for the per-agent
+// neighbor rows, and whether every worker count ends in bit-identical agent states.
+// Usage: ParallelTickBenchmark [agentCount] [ticks] [maxWorkers]
+public class ParallelTickBenchmark {
+    private static final double DELTA_TIME = 1.0 / 60.0;
+    private static final int WARMUP_TICKS = 20;
+
+    public static void main(String[] args) {
+        int agentCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+        int cores = Runtime.getRuntime().availableProcessors();
+        int maxWorkers = args.length > 2 ? Integer.parseInt(args[2]) : Math.max(8, cores);
+        System.out.printf("%d agents, %d ticks, %d cores%n", agentCount, ticks, cores);
+
+        for (boolean pairPass : new boolean[]{true, false}) {
+            System.out.println(pairPass ? "pair pass:" : "neighbor rows:");
+            run(agentCount, ticks, maxWorkers, pairPass);
+        }
+    }
+
+    private static void run(int agentCount, int ticks, int maxWorkers, boolean pairPass) {
+        double[] reference = null;
+        double baseMillis = 0;
+        for (int workers = 1; workers <= maxWorkers; workers *= 2) {
+            AgentStore store = new AgentStore(agentCount, 42);
+            List<Agent> agents = BenchmarkWorld.populate(store, agentCount, new Random(1));
+
+            SpatialGrid grid = new SpatialGrid(SimulationConstants.DEFAULT_SWARM_DISTANCE, WIDTH, HEIGHT);
+            NeighborBuffer neighbors = new NeighborBuffer();
+            ParallelTick tick = new ParallelTick(workers);
+            PairForces pairForces = new PairForces(workers);
+            Vector2D mouse = new Vector2D(-1000, -1000);
+
+            long parallelNanos = 0;
+            for (int t = 0; t < WARMUP_TICKS + ticks; t++) {
+                grid.rebuild(agents);
+
+                // Neighbor search included, it is where the two paths differ most
+                long start = System.nanoTime();
+                if (pairPass) {
+                    pairForces.compute(agents, grid);
+                    tick.computeForces(agents, pairForces, null, null);
+                } else {
+                    neighbors.fill(agents, grid);
+                    tick.computeForces(agents, null, neighbors, null);
+                }
+                tick.integrate(store, DELTA_TIME, mouse);
+                if (t >= WARMUP_TICKS) parallelNanos += System.nanoTime() - start;
+            }
+
+            double[] state = new double[agentCount * 4];
+            for (int i = 0; i < agentCount; i++) {
+                state[i * 4] = store.x[i];
+                state[i * 4 + 1] = store.y[i];
+                state[i * 4 + 2] = store.velocityX[i];
+                state[i * 4 + 3] = store.velocityY[i];
+            }
+            if (reference == null) reference = state;
+
+            double millis = parallelNanos / 1e6 / ticks;
+            if (workers == 1) baseMillis = millis;
+            System.out.printf("%2d workers: forces + integrate %.2f ms/tick, speedup %.2fx, state %s%n",
+                    workers, millis, baseMillis / millis,
+                    Arrays.equals(reference, state) ? "identical to 1 worker" : "DIFFERENT");
+        }
+    }
+}
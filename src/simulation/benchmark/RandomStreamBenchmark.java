@@ -0,0 +1,142 @@
+package simulation.benchmark;
+
+import engine.math.Vector2D;
+import main.SimulationLoop;
+import simulation.agents.AgentStore;
+import simulation.agents.NoiseBuffer;
+import simulation.agents.RandomStreams;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Random draws from several threads: one shared java.util.Random against per-agent streams, and a check that
+// the per-agent streams give bit-identical results however the agent range is split across threads. Last, a
+// whole SimulationLoop run with a fixed seed on 1 worker against several, which must end in the same state.
+// Usage: RandomStreamBenchmark [agentCount] [threads] [rounds]
+public class RandomStreamBenchmark {
+    private static final int SIMULATION_TICKS = 240;
+    private static final long SIMULATION_SEED = 42;
+
+    private interface RangeTask {
+        void run(int from, int to);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int agentCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        int draws = NoiseBuffer.GAUSSIANS + NoiseBuffer.UNIFORMS;
+
+        Random shared = new Random(1);
+        double[] sink = new double[agentCount * draws];
+        double sharedNanos = time(pool, threads, agentCount, rounds, (from, to) -> {
+            for (int k = from * draws; k < to * draws; k++) {
+                sink[k] = shared.nextDouble();
+            }
+        });
+
+        NoiseBuffer noise = new NoiseBuffer();
+        noise.ensureCapacity(agentCount);
+        long[] state = seededStates(agentCount, 1);
+        double streamNanos = time(pool, threads, agentCount, rounds, (from, to) -> noise.fill(from, to, state));
+
+        System.out.printf("%d agents, %d threads, %d samples per round%n", agentCount, threads, agentCount * draws);
+        System.out.printf("shared Random (uniform only):  %.2f ns/sample%n", sharedNanos / (agentCount * draws));
+        System.out.printf("per-agent streams (ziggurat):  %.2f ns/sample%n", streamNanos / (agentCount * draws));
+
+        // Same seed, filled on one thread and on all threads in uneven chunks
+        NoiseBuffer single = new NoiseBuffer();
+        single.ensureCapacity(agentCount);
+        long[] singleState = seededStates(agentCount, 7);
+        long[] parallelState = seededStates(agentCount, 7);
+        for (int round = 0; round < 5; round++) {
+            single.fill(0, agentCount, singleState);
+            run(pool, threads * 3 + 1, agentCount, (from, to) -> noise.fill(from, to, parallelState));
+        }
+        boolean noiseEqual = Arrays.equals(single.gaussian, 0, agentCount * NoiseBuffer.GAUSSIANS,
+                noise.gaussian, 0, agentCount * NoiseBuffer.GAUSSIANS)
+                && Arrays.equals(single.uniform, 0, agentCount * NoiseBuffer.UNIFORMS,
+                noise.uniform, 0, agentCount * NoiseBuffer.UNIFORMS);
+        System.out.printf("noise, 1 thread vs %d chunks: %s%n", threads * 3 + 1, noiseEqual ? "identical" : "DIFFERENT");
+
+        // Whole stores with the same seed, integrated in one range and in many
+        AgentStore whole = createStore(agentCount / 10);
+        AgentStore chunked = createStore(agentCount / 10);
+        Vector2D mouse = new Vector2D(-1000, -1000);
+        int count = whole.getCount();
+        for (int tick = 0; tick < 60; tick++) {
+            whole.integrate(0, count, 1.0 / 60.0, mouse);
+            for (int from = 0; from < count; from += 97) {
+                chunked.integrate(from, Math.min(count, from + 97), 1.0 / 60.0, mouse);
+            }
+        }
+        boolean storesEqual = Arrays.equals(whole.x, 0, count, chunked.x, 0, count)
+                && Arrays.equals(whole.y, 0, count, chunked.y, 0, count);
+        System.out.printf("store, 60 ticks in 1 range vs chunks of 97: %s%n", storesEqual ? "identical" : "DIFFERENT");
+
+        // At least a few workers, so the check means something on small machines too
+        int workers = Math.max(4, threads);
+        AgentStore oneWorker = runSimulation(agentCount / 20, 1);
+        AgentStore manyWorkers = runSimulation(agentCount / 20, workers);
+        int agents = oneWorker.getCount();
+        boolean runsEqual = agents == manyWorkers.getCount()
+                && Arrays.equals(oneWorker.x, 0, agents, manyWorkers.x, 0, agents)
+                && Arrays.equals(oneWorker.y, 0, agents, manyWorkers.y, 0, agents)
+                && Arrays.equals(oneWorker.velocityX, 0, agents, manyWorkers.velocityX, 0, agents)
+                && Arrays.equals(oneWorker.velocityY, 0, agents, manyWorkers.velocityY, 0, agents);
+        System.out.printf("simulation, %d agents and %d ticks with seed %d, 1 vs %d workers: %s%n", agents,
+                SIMULATION_TICKS, SIMULATION_SEED, workers, runsEqual ? "identical" : "DIFFERENT");
+
+        pool.shutdown();
+    }
+
+    private static long[] seededStates(int count, long seed) {
+        long[] state = new long[count];
+        for (int i = 0; i < count; i++) {
+            state[i] = RandomStreams.agentState(seed, i);
+        }
+        return state;
+    }
+
+    private static AgentStore runSimulation(int agentCount, int workers) {
+        SimulationLoop simulation = new SimulationLoop(BenchmarkWorld.WIDTH, BenchmarkWorld.HEIGHT, agentCount,
+                workers, SIMULATION_SEED);
+        simulation.setInput(-1000, -1000, false, false, false);
+        simulation.runTicks(SIMULATION_TICKS);
+        return simulation.getStore();
+    }
+
+    private static AgentStore createStore(int agentCount) {
+        AgentStore store = new AgentStore(agentCount, 42);
+        BenchmarkWorld.populate(store, agentCount, new Random(1));
+        return store;
+    }
+
+    private static double time(ExecutorService pool, int threads, int agentCount, int rounds, RangeTask task)
+            throws Exception {
+        run(pool, threads, agentCount, task);
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            run(pool, threads, agentCount, task);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    private static void run(ExecutorService pool, int chunks, int agentCount, RangeTask task) throws Exception {
+        Future<?>[] futures = new Future<?>[chunks];
+        for (int c = 0; c < chunks; c++) {
+            int from = (int) ((long) agentCount * c / chunks);
+            int to = (int) ((long) agentCount * (c + 1) / chunks);
+            futures[c] = pool.submit(() -> task.run(from, to));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package simulation.benchmark;
+
+import engine.math.Rotation2D;
+import engine.math.Vector2D;
+import engine.math.linearAlgebra;
+
+import java.util.Random;
+
+// Turn limiting with angles (atan2, wrap, cos/sin) against the unit complex rotation used by AgentStore:
+// time per turn and the largest angle between their results.
+// Usage: RotationBenchmark [turns] [repetitions]
+public class RotationBenchmark {
+    private static final double MAX_TURN = Math.toRadians(300) / 60.0;
+
+    public static void main(String[] args) {
+        int turns = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        Random random = new Random(1);
+        double[] fromX = new double[turns], fromY = new double[turns];
+        double[] toX = new double[turns], toY = new double[turns];
+        for (int i = 0; i < turns; i++) {
+            double from = random.nextDouble() * 2 * Math.PI;
+            // Half of the turns within the limit, where the target is taken as it is
+            double delta = (random.nextBoolean() ? 0.5 : 20.0) * MAX_TURN * (random.nextDouble() * 2 - 1);
+            fromX[i] = Math.cos(from);
+            fromY[i] = Math.sin(from);
+            toX[i] = Math.cos(from + delta);
+            toY[i] = Math.sin(from + delta);
+        }
+
+        double[] angleX = new double[turns], angleY = new double[turns];
+        double[] complexX = new double[turns], complexY = new double[turns];
+        Rotation2D rotation = new Rotation2D(MAX_TURN);
+        Vector2D turned = new Vector2D();
+
+        long angleNanos = Long.MAX_VALUE, complexNanos = Long.MAX_VALUE;
+        for (int r = 0; r < repetitions; r++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < turns; i++) {
+                double currentAngle = Math.atan2(fromY[i], fromX[i]);
+                double angleDiff = wrapAngle(Math.atan2(toY[i], toX[i]) - currentAngle);
+                double newAngle = currentAngle + Math.max(-MAX_TURN, Math.min(MAX_TURN, angleDiff));
+                angleX[i] = Math.cos(newAngle);
+                angleY[i] = Math.sin(newAngle);
+            }
+            angleNanos = Math.min(angleNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < turns; i++) {
+                rotation.turnTowards(fromX[i], fromY[i], toX[i], toY[i], turned);
+                complexX[i] = turned.x;
+                complexY[i] = turned.y;
+            }
+            complexNanos = Math.min(complexNanos, System.nanoTime() - start);
+        }
+
+        double maxAngleError = 0.0, maxLengthError = 0.0;
+        for (int i = 0; i < turns; i++) {
+            double cross = angleX[i] * complexY[i] - angleY[i] * complexX[i];
+            double dot = angleX[i] * complexX[i] + angleY[i] * complexY[i];
+            maxAngleError = Math.max(maxAngleError, Math.abs(Math.atan2(cross, dot)));
+            maxLengthError = Math.max(maxLengthError, Math.abs(linearAlgebra.length(complexX[i], complexY[i]) - 1.0));
+        }
+
+        System.out.printf("angles:        %.2f ns/turn%n", (double) angleNanos / turns);
+        System.out.printf("unit complex:  %.2f ns/turn, %.1fx faster%n",
+                (double) complexNanos / turns, (double) angleNanos / complexNanos);
+        System.out.printf("max angle difference %.1e rad, max length error %.1e%n", maxAngleError, maxLengthError);
+
+        Vector2D heading = new Vector2D(0.6, 0.8);
+        Vector2D exact = linearAlgebra.vertical(heading);
+        Vector2D rotated = linearAlgebra.rotate(heading, 90);
+        System.out.printf("vertical (0.6, 0.8): exact (%s, %s), via rotate (%s, %s)%n",
+                exact.x, exact.y, rotated.x, rotated.y);
+    }
+
+    private static double wrapAngle(double angle) {
+        while (angle > Math.PI) angle -= 2 * Math.PI;
+        while (angle < -Math.PI) angle += 2 * Math.PI;
+        return angle;
+    }
+}
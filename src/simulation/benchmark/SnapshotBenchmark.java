@@ -0,0 +1,62 @@
+package simulation.benchmark;
+
+import main.SimulationLoop;
+import simulation.agents.AgentRenderBuffer;
+import simulation.agents.SimulationConstants;
+import simulation.agents.SimulationSnapshot;
+
+import java.nio.FloatBuffer;
+
+// Runs the SimulationLoop headless against a stand-in render thread that takes frameMillis per frame, and
+// reports simulation ticks and frames per second side by side. Each frame also checks that its snapshot did
+// not change while it was read, i.e. that the simulation never writes a snapshot the renderer holds.
+// Usage: SnapshotBenchmark [seconds] [frameMillis]
+public class SnapshotBenchmark {
+    public static void main(String[] args) throws InterruptedException {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int frameMillis = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        SimulationLoop simulation = new SimulationLoop(SimulationConstants.DEFAULT_WINDOW_WIDTH,
+                SimulationConstants.DEFAULT_WINDOW_HEIGHT);
+        simulation.setInput(-1000, -1000, false, false, false);
+        simulation.start();
+
+        long frames = 0, repeatedFrames = 0, skippedTicks = 0, torn = 0;
+        long lastTick = -1;
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        while (System.nanoTime() < end) {
+            SimulationSnapshot snapshot = simulation.getSnapshots().acquire();
+            long tick = snapshot.getTick();
+            double checksum = checksum(snapshot);
+
+            // A slow frame; the simulation keeps ticking meanwhile
+            Thread.sleep(frameMillis);
+
+            if (snapshot.getTick() != tick || checksum(snapshot) != checksum) torn++;
+            if (tick == lastTick) repeatedFrames++;
+            else if (lastTick >= 0) skippedTicks += tick - lastTick - 1;
+            lastTick = tick;
+            frames++;
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        double ticksPerSecond = simulation.getTicksPerSecond();
+        long published = simulation.getSnapshots().getPublishedCount();
+        simulation.stop();
+
+        System.out.printf("%.1f s: %.1f fps (%d ms frames), %.1f tps (target %d), %d snapshots published%n",
+                elapsed, frames / elapsed, frameMillis, ticksPerSecond,
+                SimulationConstants.SIMULATION_TICK_RATE, published);
+        System.out.printf("ticks not drawn: %d, frames repeating a tick: %d, snapshots changed while drawn: %d%n",
+                skippedTicks, repeatedFrames, torn);
+    }
+
+    private static double checksum(SimulationSnapshot snapshot) {
+        FloatBuffer floats = snapshot.getAgents().getFloats();
+        double sum = 0;
+        for (int i = 0, n = snapshot.getAgentCount() * AgentRenderBuffer.FLOATS_PER_AGENT; i < n; i++) {
+            sum += floats.get(i) * (i + 1);
+        }
+        return sum;
+    }
+}
@@ -27,38 +27,41 @@ public class LightSource {
     }
 
     public void render() {
-        Renderer.pushMatrix();
+        render(position.x, position.y, radius, getFlickerFactor());
+    }
 
-        double flickerFactor = intensity / baseIntensity;
+    // Draws a light from copied values, e.g. out of a SimulationSnapshot
+    public static void render(double x, double y, double radius, double flickerFactor) {
+        Renderer.pushMatrix();
 
         Renderer.setColor(1.0f, 1.0f, 0.8f, (float)(0.15 * flickerFactor));
         PrimitiveRenderer.renderCircle(
-                (float) position.x,
-                (float) position.y,
+                (float) x,
+                (float) y,
                 (float) (radius * 2.5),
                 32
         );
 
         Renderer.setColor(1.0f, 1.0f, 0.85f, (float)(0.3 * flickerFactor));
         PrimitiveRenderer.renderCircle(
-                (float) position.x,
-                (float) position.y,
+                (float) x,
+                (float) y,
                 (float) (radius * 1.5),
                 24
         );
 
         Renderer.setColor(1.0f, 1.0f, 0.9f, (float)(0.7 * flickerFactor));
         PrimitiveRenderer.renderCircle(
-                (float) position.x,
-                (float) position.y,
+                (float) x,
+                (float) y,
                 (float) radius,
                 16
         );
 
         Renderer.setColor(1.0f, 1.0f, 0.95f, (float)(0.9 * flickerFactor));
         PrimitiveRenderer.renderCircle(
-                (float) position.x,
-                (float) position.y,
+                (float) x,
+                (float) y,
                 (float) (radius * 0.4),
                 8
         );
@@ -68,6 +71,9 @@ public class LightSource {
     }
 
     public Vector2D getPosition() { return new Vector2D(position); }
+    public double getX() { return position.x; }
+    public double getY() { return position.y; }
     public double getIntensity() { return intensity; }
     public double getRadius() { return radius; }
+    public double getFlickerFactor() { return intensity / baseIntensity; }
 }
\ No newline at end of file
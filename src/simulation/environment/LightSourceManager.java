@@ -23,23 +23,29 @@ public class LightSourceManager {
     }
 
     public static Vector2D getAttractionForce(Agent agent) {
-        Vector2D totalAttraction = new Vector2D();
-
-        for (LightSource light : lightSources) {
-            double distance = linearAlgebra.euclideanDistance(agent.position, light.getPosition());
+        return getAttractionForce(agent.getX(), agent.getY(), new Vector2D());
+    }
 
-            if (distance > 0 && distance < light.getRadius() * 3) {
-                Vector2D attraction = linearAlgebra.sub(light.getPosition(), agent.position);
-                attraction.normalize();
+    // Attraction towards all nearby lights at (x, y), written into out
+    public static Vector2D getAttractionForce(double x, double y, Vector2D out) {
+        return addAttractionForce(x, y, 1.0, out.set(0, 0));
+    }
 
-                double strength = (light.getIntensity() * light.getRadius()) / (distance + 1);
-                attraction.mult(strength);
+    // Adds weight times the attraction at (x, y) to out
+    public static Vector2D addAttractionForce(double x, double y, double weight, Vector2D out) {
+        for (int i = 0; i < lightSources.size(); i++) {
+            LightSource light = lightSources.get(i);
+            double toLightX = light.getX() - x;
+            double toLightY = light.getY() - y;
+            double distance = linearAlgebra.length(toLightX, toLightY);
 
-                totalAttraction.add(attraction);
+            if (distance > 0 && distance < light.getRadius() * 3) {
+                double strength = (light.getIntensity() * light.getRadius()) / (distance + 1) * weight;
+                out.add(toLightX / distance * strength, toLightY / distance * strength);
             }
         }
 
-        return totalAttraction;
+        return out;
     }
 
     public static void renderAll() {
@@ -54,6 +60,15 @@ public class LightSourceManager {
         }
     }
 
+    // Indexed access for per-agent loops, which should not copy the list like getLightSources does
+    public static int getLightSourceCount() {
+        return lightSources.size();
+    }
+
+    public static LightSource getLightSource(int index) {
+        return lightSources.get(index);
+    }
+
     public static List<LightSource> getLightSources() {
         return new ArrayList<>(lightSources);
     }
@@ -9,6 +9,7 @@ public class WindManager {
     private static double windStrength = 0.0;
     private static Vector2D lastMousePosition = new Vector2D();
     private static boolean isMousePressed = false;
+    private static final Vector2D scratchMovement = new Vector2D();
 
     private static final double WIND_DECAY = 0.98; // How fast wind dies
     private static final double WIND_SMOOTHING = 0.7; // How smooth wind changes
@@ -17,11 +18,11 @@ public class WindManager {
 
     public static void updateWind(Vector2D mousePosition, boolean mousePressed, double deltaTime) {
         if (mousePressed && isMousePressed) {
-            Vector2D mouseMovement = linearAlgebra.sub(mousePosition, lastMousePosition);
+            Vector2D mouseMovement = linearAlgebra.sub(mousePosition, lastMousePosition, scratchMovement);
             double mouseSpeed = mouseMovement.length() / deltaTime;
 
             if (mouseSpeed > 10.0 && !mouseMovement.isNullvector()) {
-                Vector2D newWindDirection = new Vector2D(mouseMovement);
+                Vector2D newWindDirection = mouseMovement;
                 newWindDirection.normalize();
 
                 if (!currentWindDirection.isNullvector()) {
@@ -32,7 +33,7 @@ public class WindManager {
                         currentWindDirection.normalize();
                     }
                 } else {
-                    currentWindDirection = newWindDirection;
+                    currentWindDirection.setPosition(newWindDirection);
                 }
 
                 double targetStrength = Math.min(mouseSpeed * 0.5, MAX_WIND_STRENGTH);
@@ -43,27 +44,29 @@ public class WindManager {
         windStrength *= WIND_DECAY;
         if (windStrength < 1.0) {
             windStrength = 0.0;
-            currentWindDirection = new Vector2D();
+            currentWindDirection.set(0, 0);
         }
 
-        lastMousePosition = new Vector2D(mousePosition);
+        lastMousePosition.setPosition(mousePosition);
         isMousePressed = mousePressed;
     }
 
     public static Vector2D getWindForce(Vector2D agentPosition, Vector2D mousePosition, double agentMass) {
+        return getWindForce(agentPosition.x, agentPosition.y, mousePosition, agentMass, new Vector2D());
+    }
+
+    // Wind force on an agent at (x, y), written into out
+    public static Vector2D getWindForce(double x, double y, Vector2D mousePosition, double agentMass, Vector2D out) {
         if (windStrength <= 0.0 || currentWindDirection.isNullvector()) {
-            return new Vector2D();
+            return out.set(0, 0);
         }
 
-        double distanceToMouse = linearAlgebra.euclideanDistance(agentPosition, mousePosition);
+        double distanceToMouse = linearAlgebra.distance(x, y, mousePosition.x, mousePosition.y);
         double windEffect = Math.max(0.0, 1.0 - (distanceToMouse / WIND_RADIUS));
 
         double resistance = 1.0 / (1.0 + agentMass);
 
-        Vector2D windForce = new Vector2D(currentWindDirection);
-        windForce.mult(windStrength * windEffect * resistance);
-
-        return windForce;
+        return linearAlgebra.mult(currentWindDirection, windStrength * windEffect * resistance, out);
     }
 
     public static double getWindStrength() {
@@ -77,4 +80,17 @@ public class WindManager {
     public static boolean hasWind() {
         return windStrength > 0.0;
     }
+
+    // Wind direction times strength, the force on a massless agent right at the mouse
+    public static double getWindX() {
+        return hasWind() ? currentWindDirection.x * windStrength : 0.0;
+    }
+
+    public static double getWindY() {
+        return hasWind() ? currentWindDirection.y * windStrength : 0.0;
+    }
+
+    public static double getWindRadius() {
+        return WIND_RADIUS;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,49 @@
+package simulation.kernels;
+
+import engine.math.Vector2D;
+
+// Arithmetic of the per-tick force and integration passes over primitive arrays, ranges are [from, to).
+// Agent parameters come from ParameterTable columns, read through the agents' row indices.
+// Implementations must give the same results up to floating point rounding.
+// The row kernels (separationSum, offsetSum) may run on several threads at once; the state kernels may keep
+// scratch state, so concurrent callers use one instance each.
+public interface ForceKernels {
+
+    // Sum of the pushes away from all offsets with 0 < length < range, each weighted by 1 / (length² + 0.1);
+    // offsets point from the agent to its neighbors. Returns the number of offsets in range.
+    int separationSum(double[] offsetX, double[] offsetY, int from, int to, double range, Vector2D sum);
+
+    // Sum of all offsets with 0 < length < range, returns how many there are
+    int offsetSum(double[] offsetX, double[] offsetY, int from, int to, double range, Vector2D sum);
+
+    // Adds wind (windX, windY) to the forces, fading out linearly up to radius around the mouse and
+    // weakened by 1 / (1 + mass)
+    void applyWind(double[] x, double[] y, int[] row, double[] mass, double[] forceX, double[] forceY,
+                   int from, int to, double mouseX, double mouseY, double windX, double windY, double radius);
+
+    // Truncates the forces to maxForce, stores the accelerations and adds them to the damped velocities
+    void integrateVelocity(double[] forceX, double[] forceY, int[] row, double[] mass, double[] maxForce,
+                           double[] accelerationX, double[] accelerationY,
+                           double[] velocityX, double[] velocityY, int from, int to,
+                           double deltaTime, double damping);
+
+    // Truncates the velocities to maxSpeed and moves the positions by one step
+    void advance(double[] x, double[] y, double[] velocityX, double[] velocityY, int[] row, double[] maxSpeed,
+                 int from, int to, double deltaTime);
+
+    KernelMode getMode();
+
+    // The vector kernels need the jdk.incubator.vector module at run time (--add-modules jdk.incubator.vector);
+    // without it the scalar kernels are used
+    static ForceKernels create(KernelMode mode) {
+        if (mode == KernelMode.VECTOR) {
+            try {
+                return (ForceKernels) Class.forName("simulation.kernels.VectorForceKernels")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                System.err.println("Vector kernels unavailable, using scalar kernels: " + e);
+            }
+        }
+        return new ScalarForceKernels();
+    }
+}
@@ -0,0 +1,6 @@
+package simulation.kernels;
+
+public enum KernelMode {
+    SCALAR,
+    VECTOR
+}
@@ -0,0 +1,104 @@
+package simulation.kernels;
+
+import engine.math.Vector2D;
+
+// One agent or neighbor per iteration; also handles the tails of the vector kernels
+public class ScalarForceKernels implements ForceKernels {
+
+    @Override
+    public int separationSum(double[] offsetX, double[] offsetY, int from, int to, double range, Vector2D sum) {
+        double rangeSquare = range * range;
+        double sumX = 0.0, sumY = 0.0;
+        int count = 0;
+
+        for (int k = from; k < to; k++) {
+            double dx = offsetX[k], dy = offsetY[k];
+            double distanceSquare = dx * dx + dy * dy;
+            if (distanceSquare > 0 && distanceSquare < rangeSquare) {
+                double scale = 1.0 / (Math.sqrt(distanceSquare) * (distanceSquare + 0.1));
+                sumX -= dx * scale;
+                sumY -= dy * scale;
+                count++;
+            }
+        }
+
+        sum.set(sumX, sumY);
+        return count;
+    }
+
+    @Override
+    public int offsetSum(double[] offsetX, double[] offsetY, int from, int to, double range, Vector2D sum) {
+        double rangeSquare = range * range;
+        double sumX = 0.0, sumY = 0.0;
+        int count = 0;
+
+        for (int k = from; k < to; k++) {
+            double dx = offsetX[k], dy = offsetY[k];
+            double distanceSquare = dx * dx + dy * dy;
+            if (distanceSquare > 0 && distanceSquare < rangeSquare) {
+                sumX += dx;
+                sumY += dy;
+                count++;
+            }
+        }
+
+        sum.set(sumX, sumY);
+        return count;
+    }
+
+    @Override
+    public void applyWind(double[] x, double[] y, int[] row, double[] mass, double[] forceX, double[] forceY,
+                          int from, int to, double mouseX, double mouseY, double windX, double windY, double radius) {
+        for (int i = from; i < to; i++) {
+            double dx = x[i] - mouseX, dy = y[i] - mouseY;
+            double effect = Math.max(0.0, 1.0 - Math.sqrt(dx * dx + dy * dy) / radius);
+            double scale = effect / (1.0 + mass[row[i]]);
+            forceX[i] += windX * scale;
+            forceY[i] += windY * scale;
+        }
+    }
+
+    @Override
+    public void integrateVelocity(double[] forceX, double[] forceY, int[] row, double[] mass, double[] maxForce,
+                                  double[] accelerationX, double[] accelerationY,
+                                  double[] velocityX, double[] velocityY, int from, int to,
+                                  double deltaTime, double damping) {
+        for (int i = from; i < to; i++) {
+            int r = row[i];
+            double fx = forceX[i], fy = forceY[i];
+            double forceLength = Math.sqrt(fx * fx + fy * fy);
+            if (forceLength > maxForce[r]) {
+                double scale = maxForce[r] / forceLength;
+                fx *= scale;
+                fy *= scale;
+            }
+
+            accelerationX[i] = fx / mass[r];
+            accelerationY[i] = fy / mass[r];
+            velocityX[i] = (velocityX[i] + accelerationX[i] * deltaTime) * damping;
+            velocityY[i] = (velocityY[i] + accelerationY[i] * deltaTime) * damping;
+        }
+    }
+
+    @Override
+    public void advance(double[] x, double[] y, double[] velocityX, double[] velocityY, int[] row, double[] maxSpeed,
+                        int from, int to, double deltaTime) {
+        for (int i = from; i < to; i++) {
+            double limit = maxSpeed[row[i]];
+            double speed = Math.sqrt(velocityX[i] * velocityX[i] + velocityY[i] * velocityY[i]);
+            if (speed > limit) {
+                double scale = limit / speed;
+                velocityX[i] *= scale;
+                velocityY[i] *= scale;
+            }
+
+            x[i] += velocityX[i] * deltaTime;
+            y[i] += velocityY[i] * deltaTime;
+        }
+    }
+
+    @Override
+    public KernelMode getMode() {
+        return KernelMode.SCALAR;
+    }
+}
@@ -0,0 +1,155 @@
+package simulation.kernels;
+
+import engine.math.Vector2D;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// Kernels on SPECIES.length() lanes at once (4 doubles with AVX2, 8 with AVX-512), the remainder of each
+// range goes through the scalar kernels.
+// Only loaded through ForceKernels.create. The lane scratch for gathers makes the state kernels single-threaded.
+class VectorForceKernels implements ForceKernels {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private final ScalarForceKernels tail = new ScalarForceKernels();
+    private final double[] lanes = new double[SPECIES.length()];
+
+    @Override
+    public int separationSum(double[] offsetX, double[] offsetY, int from, int to, double range, Vector2D sum) {
+        double rangeSquare = range * range;
+        DoubleVector sumX = DoubleVector.zero(SPECIES);
+        DoubleVector sumY = DoubleVector.zero(SPECIES);
+        int count = 0;
+
+        int k = from;
+        for (int bound = from + SPECIES.loopBound(to - from); k < bound; k += SPECIES.length()) {
+            DoubleVector dx = DoubleVector.fromArray(SPECIES, offsetX, k);
+            DoubleVector dy = DoubleVector.fromArray(SPECIES, offsetY, k);
+            DoubleVector distanceSquare = dx.mul(dx).add(dy.mul(dy));
+            VectorMask<Double> inRange = distanceSquare.compare(VectorOperators.GT, 0.0)
+                    .and(distanceSquare.compare(VectorOperators.LT, rangeSquare));
+            if (!inRange.anyTrue()) continue;
+
+            // Lanes out of range may divide by zero, the mask drops them
+            DoubleVector scale = distanceSquare.lanewise(VectorOperators.SQRT).mul(distanceSquare.add(0.1));
+            sumX = sumX.sub(dx.div(scale), inRange);
+            sumY = sumY.sub(dy.div(scale), inRange);
+            count += inRange.trueCount();
+        }
+
+        count += tail.separationSum(offsetX, offsetY, k, to, range, sum);
+        sum.add(sumX.reduceLanes(VectorOperators.ADD), sumY.reduceLanes(VectorOperators.ADD));
+        return count;
+    }
+
+    @Override
+    public int offsetSum(double[] offsetX, double[] offsetY, int from, int to, double range, Vector2D sum) {
+        double rangeSquare = range * range;
+        DoubleVector sumX = DoubleVector.zero(SPECIES);
+        DoubleVector sumY = DoubleVector.zero(SPECIES);
+        int count = 0;
+
+        int k = from;
+        for (int bound = from + SPECIES.loopBound(to - from); k < bound; k += SPECIES.length()) {
+            DoubleVector dx = DoubleVector.fromArray(SPECIES, offsetX, k);
+            DoubleVector dy = DoubleVector.fromArray(SPECIES, offsetY, k);
+            DoubleVector distanceSquare = dx.mul(dx).add(dy.mul(dy));
+            VectorMask<Double> inRange = distanceSquare.compare(VectorOperators.GT, 0.0)
+                    .and(distanceSquare.compare(VectorOperators.LT, rangeSquare));
+
+            sumX = sumX.add(dx, inRange);
+            sumY = sumY.add(dy, inRange);
+            count += inRange.trueCount();
+        }
+
+        count += tail.offsetSum(offsetX, offsetY, k, to, range, sum);
+        sum.add(sumX.reduceLanes(VectorOperators.ADD), sumY.reduceLanes(VectorOperators.ADD));
+        return count;
+    }
+
+    @Override
+    public void applyWind(double[] x, double[] y, int[] row, double[] mass, double[] forceX, double[] forceY,
+                          int from, int to, double mouseX, double mouseY, double windX, double windY, double radius) {
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length()) {
+            DoubleVector dx = DoubleVector.fromArray(SPECIES, x, i).sub(mouseX);
+            DoubleVector dy = DoubleVector.fromArray(SPECIES, y, i).sub(mouseY);
+            DoubleVector distance = dx.mul(dx).add(dy.mul(dy)).lanewise(VectorOperators.SQRT);
+            DoubleVector effect = distance.div(radius).neg().add(1.0).max(0.0);
+            DoubleVector scale = effect.div(gather(mass, row, i).add(1.0));
+
+            DoubleVector.fromArray(SPECIES, forceX, i).add(scale.mul(windX)).intoArray(forceX, i);
+            DoubleVector.fromArray(SPECIES, forceY, i).add(scale.mul(windY)).intoArray(forceY, i);
+        }
+
+        tail.applyWind(x, y, row, mass, forceX, forceY, i, to, mouseX, mouseY, windX, windY, radius);
+    }
+
+    @Override
+    public void integrateVelocity(double[] forceX, double[] forceY, int[] row, double[] mass, double[] maxForce,
+                                  double[] accelerationX, double[] accelerationY,
+                                  double[] velocityX, double[] velocityY, int from, int to,
+                                  double deltaTime, double damping) {
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length()) {
+            DoubleVector fx = DoubleVector.fromArray(SPECIES, forceX, i);
+            DoubleVector fy = DoubleVector.fromArray(SPECIES, forceY, i);
+            DoubleVector limit = gather(maxForce, row, i);
+            DoubleVector forceLength = fx.mul(fx).add(fy.mul(fy)).lanewise(VectorOperators.SQRT);
+
+            DoubleVector scale = DoubleVector.broadcast(SPECIES, 1.0)
+                    .blend(limit.div(forceLength), forceLength.compare(VectorOperators.GT, limit));
+            DoubleVector agentMass = gather(mass, row, i);
+
+            DoubleVector ax = fx.mul(scale).div(agentMass);
+            DoubleVector ay = fy.mul(scale).div(agentMass);
+            ax.intoArray(accelerationX, i);
+            ay.intoArray(accelerationY, i);
+
+            DoubleVector.fromArray(SPECIES, velocityX, i).add(ax.mul(deltaTime)).mul(damping).intoArray(velocityX, i);
+            DoubleVector.fromArray(SPECIES, velocityY, i).add(ay.mul(deltaTime)).mul(damping).intoArray(velocityY, i);
+        }
+
+        tail.integrateVelocity(forceX, forceY, row, mass, maxForce, accelerationX, accelerationY,
+                velocityX, velocityY, i, to, deltaTime, damping);
+    }
+
+    @Override
+    public void advance(double[] x, double[] y, double[] velocityX, double[] velocityY, int[] row, double[] maxSpeed,
+                        int from, int to, double deltaTime) {
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length()) {
+            DoubleVector vx = DoubleVector.fromArray(SPECIES, velocityX, i);
+            DoubleVector vy = DoubleVector.fromArray(SPECIES, velocityY, i);
+            DoubleVector limit = gather(maxSpeed, row, i);
+            DoubleVector speed = vx.mul(vx).add(vy.mul(vy)).lanewise(VectorOperators.SQRT);
+
+            DoubleVector scale = DoubleVector.broadcast(SPECIES, 1.0)
+                    .blend(limit.div(speed), speed.compare(VectorOperators.GT, limit));
+            vx = vx.mul(scale);
+            vy = vy.mul(scale);
+            vx.intoArray(velocityX, i);
+            vy.intoArray(velocityY, i);
+
+            DoubleVector.fromArray(SPECIES, x, i).add(vx.mul(deltaTime)).intoArray(x, i);
+            DoubleVector.fromArray(SPECIES, y, i).add(vy.mul(deltaTime)).intoArray(y, i);
+        }
+
+        tail.advance(x, y, velocityX, velocityY, row, maxSpeed, i, to, deltaTime);
+    }
+
+    // Parameters of agents i .. i + lanes through their rows. Collected by hand because the indexed
+    // fromArray of the JDK 17 incubator crashes the C2 compiler in this kernel.
+    private DoubleVector gather(double[] values, int[] row, int i) {
+        for (int lane = 0; lane < lanes.length; lane++) {
+            lanes[lane] = values[row[i + lane]];
+        }
+        return DoubleVector.fromArray(SPECIES, lanes, 0);
+    }
+
+    @Override
+    public KernelMode getMode() {
+        return KernelMode.VECTOR;
+    }
+}
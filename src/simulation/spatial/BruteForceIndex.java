@@ -0,0 +1,42 @@
+package simulation.spatial;
+
+import engine.math.Vector2D;
+import simulation.agents.Agent;
+
+import java.util.List;
+
+public class BruteForceIndex implements PairIndex {
+    private List<Agent> agents;
+
+    @Override
+    public void rebuild(List<Agent> agents) {
+        this.agents = agents;
+    }
+
+    @Override
+    public void findNeighbors(int agentIndex, double radius, PairVisitor visitor) {
+        scan(agentIndex, 0, radius, visitor);
+    }
+
+    @Override
+    public void forEachPair(int from, int to, double radius, PairVisitor visitor) {
+        for (int i = from; i < to; i++) {
+            scan(i, i + 1, radius, visitor);
+        }
+    }
+
+    private void scan(int agentIndex, int firstCandidate, double radius, PairVisitor visitor) {
+        Agent agent = agents.get(agentIndex);
+        double radiusSquare = radius * radius;
+
+        for (int j = firstCandidate; j < agents.size(); j++) {
+            if (j == agentIndex) continue;
+
+            Vector2D offset = agents.get(j).getOffsetFrom(agent);
+            double distanceSquare = offset.lengthSquare();
+            if (distanceSquare <= radiusSquare) {
+                visitor.visit(agentIndex, j, offset.x, offset.y, distanceSquare);
+            }
+        }
+    }
+}
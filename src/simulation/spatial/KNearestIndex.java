@@ -0,0 +1,32 @@
+package simulation.spatial;
+
+import simulation.agents.Agent;
+
+import java.util.List;
+
+// Topological neighborhoods: each agent interacts with its k nearest agents inside its perception radius,
+// so the work per agent stays bounded however dense the swarm gets around a light. Not symmetric, so no
+// PairIndex: a is among the k nearest of b without b being among the k nearest of a.
+public class KNearestIndex implements NeighborIndex {
+    private final SpatialGrid grid;
+    private final int k;
+
+    public KNearestIndex(int k, double cellSize, double worldWidth, double worldHeight) {
+        this.grid = new SpatialGrid(cellSize, worldWidth, worldHeight);
+        this.k = k;
+    }
+
+    @Override
+    public void rebuild(List<Agent> agents) {
+        grid.rebuild(agents);
+    }
+
+    @Override
+    public void findNeighbors(int agentIndex, double radius, PairVisitor visitor) {
+        grid.findNearest(agentIndex, k, radius, visitor);
+    }
+
+    public int getK() {
+        return k;
+    }
+}
@@ -0,0 +1,77 @@
+package simulation.spatial;
+
+import simulation.agents.Agent;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class MortonOrder {
+    private static final int BITS_PER_AXIS = 16;
+    private static final int AXIS_RESOLUTION = (1 << BITS_PER_AXIS) - 1;
+
+    private final double worldWidth;
+    private final double worldHeight;
+
+    // Scratch buffers reused between sorts
+    private long[] keys = new long[0];
+    private int[] order = new int[0];
+    private Agent[] scratch = new Agent[0];
+
+    public MortonOrder(double worldWidth, double worldHeight) {
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+    }
+
+    // Sorts agents in place along the Z-order curve of their positions.
+    // Returns the permutation: the agent now at index i was at index order[i] (valid up to agents.size()).
+    public int[] sort(List<Agent> agents) {
+        int count = agents.size();
+        ensureCapacity(count);
+
+        // Key in the upper 32 bits, old index in the lower ones, so a primitive sort yields the permutation.
+        // The key uses all 32 bits; flipping the sign bit makes the signed sort order them unsigned.
+        for (int i = 0; i < count; i++) {
+            Agent agent = agents.get(i);
+            long key = encode(quantize(agent.getX(), worldWidth), quantize(agent.getY(), worldHeight));
+            keys[i] = ((key << 32) | i) ^ Long.MIN_VALUE;
+            scratch[i] = agent;
+        }
+        Arrays.sort(keys, 0, count);
+
+        for (int i = 0; i < count; i++) {
+            order[i] = (int) keys[i];
+            agents.set(i, scratch[order[i]]);
+        }
+        return order;
+    }
+
+    private static int quantize(double value, double extent) {
+        double normalized = value / extent;
+        if (normalized <= 0.0) return 0;
+        if (normalized >= 1.0) return AXIS_RESOLUTION;
+        return (int) (normalized * AXIS_RESOLUTION);
+    }
+
+    // Interleaves the bits of two 16 bit coordinates: x in the even bits, y in the odd ones
+    public static long encode(int x, int y) {
+        return spread(x) | (spread(y) << 1);
+    }
+
+    private static long spread(int value) {
+        long v = value & 0xFFFFL;
+        v = (v | (v << 8)) & 0x00FF00FFL;
+        v = (v | (v << 4)) & 0x0F0F0F0FL;
+        v = (v | (v << 2)) & 0x33333333L;
+        v = (v | (v << 1)) & 0x55555555L;
+        return v;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (keys.length >= capacity) return;
+
+        int newCapacity = Math.max(capacity, keys.length * 2);
+        keys = new long[newCapacity];
+        order = new int[newCapacity];
+        scratch = new Agent[newCapacity];
+    }
+}
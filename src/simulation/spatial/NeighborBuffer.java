@@ -0,0 +1,208 @@
+package simulation.spatial;
+
+import engine.math.Vector2D;
+import simulation.agents.Agent;
+import simulation.kernels.ForceKernels;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+// Neighbor results of one tick in CSR layout: the neighbors of agent i are
+// neighbors[offsets[i] .. offsets[i + 1]). Grows as needed and never shrinks, so steady-state ticks do not allocate.
+public class NeighborBuffer implements PairVisitor {
+    private int[] offsets = new int[1];
+    private int[] neighbors = new int[1024];
+    // Wrapped offsets from the agent to each stored neighbor, parallel to neighbors
+    private double[] offsetsX = new double[1024];
+    private double[] offsetsY = new double[1024];
+    private int size;
+    private List<Agent> agents;
+
+    // Optional cap on stored neighbors per agent. Larger rows keep their nearest neighbors, which dominate
+    // separation, and a uniform random subset of the rest drawn from each agent's own random stream (see
+    // AgentStore.nextRandom). In rows with weights[i] != 1, the entries from weightedStart[i] on stand in for
+    // weights[i] neighbors each; the row sums below scale them by that so the sums stay unbiased.
+    private int sampleLimit;
+    private int[] weightedStart = new int[0];
+    private double[] weights = new double[0];
+
+    public NeighborBuffer() {
+        this(0);
+    }
+
+    public NeighborBuffer(int sampleLimit) {
+        this.sampleLimit = sampleLimit;
+    }
+
+    public void fill(List<Agent> agents, NeighborIndex index) {
+        fill(agents, index, null);
+    }
+
+    // Only agents accepted by rows (all if null) are queried, the others get empty rows
+    public void fill(List<Agent> agents, NeighborIndex index, IntPredicate rows) {
+        this.agents = agents;
+        int count = agents.size();
+        if (offsets.length < count + 1) {
+            offsets = new int[Math.max(count + 1, offsets.length * 2)];
+        }
+        if (sampleLimit > 0 && weights.length < count) {
+            weightedStart = new int[offsets.length];
+            weights = new double[offsets.length];
+        }
+
+        size = 0;
+        for (int i = 0; i < count; i++) {
+            offsets[i] = size;
+            if (sampleLimit > 0) weights[i] = 1.0;
+            if (rows != null && !rows.test(i)) continue;
+
+            index.findNeighbors(i, agents.get(i).getSwarmDistance(), this);
+            if (sampleLimit > 0 && size - offsets[i] > sampleLimit) {
+                size = sampleRow(agents.get(i), offsets[i], size);
+            }
+        }
+        offsets[count] = size;
+    }
+
+    // Drops the entries out of reach of both sums, keeps the nearest quarter of the limit and a uniform random
+    // subset of the remainder (partial Fisher-Yates). Returns the new end of the row.
+    private int sampleRow(Agent agent, int start, int end) {
+        double reach = Math.max(agent.getSeparationDistance(), agent.getCohesionDistance());
+        int found = 0;
+        for (int k = start; k < end; k++) {
+            if (distanceSquare(k) < reach * reach) swap(start + found++, k);
+        }
+        if (found <= sampleLimit) return start + found;
+
+        int nearest = sampleLimit / 4;
+        selectNearest(start, start + found, start + nearest);
+
+        int from = start + nearest, remainder = found - nearest, picks = sampleLimit - nearest;
+        int i = agent.getIndex();
+        for (int s = 0; s < picks; s++) {
+            swap(from + s, from + s + (int) (agent.getStore().nextRandom(i) * (remainder - s)));
+        }
+        weightedStart[i] = from;
+        weights[i] = (double) remainder / picks;
+        return start + sampleLimit;
+    }
+
+    // Quickselect: afterwards the entries before nth are no farther than the ones from nth on
+    private void selectNearest(int from, int to, int nth) {
+        while (to - from > 1) {
+            double pivot = distanceSquare((from + to) >>> 1);
+            int low = from, high = to - 1;
+            while (low <= high) {
+                while (distanceSquare(low) < pivot) low++;
+                while (distanceSquare(high) > pivot) high--;
+                if (low <= high) swap(low++, high--);
+            }
+            if (nth <= high) {
+                to = high + 1;
+            } else if (nth >= low) {
+                from = low;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private double distanceSquare(int slot) {
+        return offsetsX[slot] * offsetsX[slot] + offsetsY[slot] * offsetsY[slot];
+    }
+
+    private void swap(int a, int b) {
+        int neighbor = neighbors[a];
+        neighbors[a] = neighbors[b];
+        neighbors[b] = neighbor;
+
+        double x = offsetsX[a], y = offsetsY[a];
+        offsetsX[a] = offsetsX[b];
+        offsetsY[a] = offsetsY[b];
+        offsetsX[b] = x;
+        offsetsY[b] = y;
+    }
+
+    // Repulsion summed over the row (see ForceKernels.separationSum), sampled entries weighted
+    public Vector2D separationSum(ForceKernels kernels, int agentIndex, double range, Vector2D out) {
+        int start = offsets[agentIndex], end = offsets[agentIndex + 1];
+        if (sampleLimit == 0 || weights[agentIndex] == 1.0) {
+            kernels.separationSum(offsetsX, offsetsY, start, end, range, out);
+            return out;
+        }
+
+        kernels.separationSum(offsetsX, offsetsY, start, weightedStart[agentIndex], range, out);
+        double x = out.x, y = out.y;
+        kernels.separationSum(offsetsX, offsetsY, weightedStart[agentIndex], end, range, out);
+        return out.set(x + out.x * weights[agentIndex], y + out.y * weights[agentIndex]);
+    }
+
+    // Offsets summed over the row (see ForceKernels.offsetSum), sampled entries weighted
+    public Vector2D offsetSum(ForceKernels kernels, int agentIndex, double range, Vector2D out) {
+        int start = offsets[agentIndex], end = offsets[agentIndex + 1];
+        if (sampleLimit == 0 || weights[agentIndex] == 1.0) {
+            kernels.offsetSum(offsetsX, offsetsY, start, end, range, out);
+            return out;
+        }
+
+        kernels.offsetSum(offsetsX, offsetsY, start, weightedStart[agentIndex], range, out);
+        double x = out.x, y = out.y;
+        kernels.offsetSum(offsetsX, offsetsY, weightedStart[agentIndex], end, range, out);
+        return out.set(x + out.x * weights[agentIndex], y + out.y * weights[agentIndex]);
+    }
+
+    @Override
+    public void visit(int first, int second, double offsetX, double offsetY, double distanceSquare) {
+        if (size == neighbors.length) {
+            neighbors = Arrays.copyOf(neighbors, neighbors.length * 2);
+            offsetsX = Arrays.copyOf(offsetsX, neighbors.length);
+            offsetsY = Arrays.copyOf(offsetsY, neighbors.length);
+        }
+        offsetsX[size] = offsetX;
+        offsetsY[size] = offsetY;
+        neighbors[size++] = second;
+    }
+
+    public int getStart(int agentIndex) {
+        return offsets[agentIndex];
+    }
+
+    public int getEnd(int agentIndex) {
+        return offsets[agentIndex + 1];
+    }
+
+    public int getNeighborCount(int agentIndex) {
+        return offsets[agentIndex + 1] - offsets[agentIndex];
+    }
+
+    public int getNeighborIndex(int slot) {
+        return neighbors[slot];
+    }
+
+    public Agent getNeighbor(int slot) {
+        return agents.get(neighbors[slot]);
+    }
+
+    // Offset arrays indexed by slot, for kernels running over a whole row
+    public double[] getOffsetsX() {
+        return offsetsX;
+    }
+
+    public double[] getOffsetsY() {
+        return offsetsY;
+    }
+
+    public int getSampleLimit() {
+        return sampleLimit;
+    }
+
+    public void setSampleLimit(int sampleLimit) {
+        this.sampleLimit = sampleLimit;
+    }
+
+    // Total number of stored (agent, neighbor) entries
+    public int getSize() {
+        return size;
+    }
+}
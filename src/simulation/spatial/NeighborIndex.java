@@ -0,0 +1,18 @@
+package simulation.spatial;
+
+import simulation.agents.Agent;
+
+import java.util.List;
+
+// Per-agent neighbor queries; indexes that can also enumerate pairs implement PairIndex
+public interface NeighborIndex {
+    void rebuild(List<Agent> agents);
+
+    // Visits every agent within radius of agents[agentIndex] (wrapped distance, agent itself excluded)
+    // as (agentIndex, neighbor)
+    void findNeighbors(int agentIndex, double radius, PairVisitor visitor);
+
+    // Called after the agent list was permuted (agent i now was agent order[i]) for indexes that keep per-index state
+    default void reorder(int[] order, int count) {
+    }
+}
@@ -0,0 +1,8 @@
+package simulation.spatial;
+
+public enum NeighborIndexType {
+    BRUTE_FORCE,
+    GRID,
+    QUADTREE,
+    K_NEAREST
+}
@@ -0,0 +1,10 @@
+package simulation.spatial;
+
+// Neighbor indexes that also enumerate every pair once: the neighborhoods must be symmetric (b is a
+// neighbor of a exactly when a is a neighbor of b), which the Verlet lists and the pair force pass rely on.
+// Topological neighborhoods such as KNearestIndex are not, and only implement NeighborIndex.
+public interface PairIndex extends NeighborIndex {
+    // Visits every unordered pair within radius exactly once, as (first, second) with first < second,
+    // for first in [from, to). Read-only, so disjoint ranges may be visited from different threads.
+    void forEachPair(int from, int to, double radius, PairVisitor visitor);
+}
@@ -0,0 +1,7 @@
+package simulation.spatial;
+
+@FunctionalInterface
+public interface PairVisitor {
+    // Offset points from first to second, taking the wrapped world edges into account
+    void visit(int first, int second, double offsetX, double offsetY, double distanceSquare);
+}
@@ -0,0 +1,346 @@
+package simulation.spatial;
+
+import engine.math.Vector2D;
+import simulation.agents.Agent;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class QuadTree implements PairIndex {
+    private static final int DEFAULT_LEAF_CAPACITY = 16;
+    private static final int DEFAULT_MAX_DEPTH = 16;
+
+    private final double worldWidth;
+    private final double worldHeight;
+    private final int leafCapacity;
+    private final int maxDepth;
+
+    // Agents are reordered in place while splitting, so every node owns the range itemIndex[start .. end)
+    private int[] itemIndex = new int[0];
+    private double[] itemX = new double[0];
+    private double[] itemY = new double[0];
+    private List<Agent> agents;
+    private int count;
+
+    // Node pool, rebuilt every tick without allocating once it has grown large enough
+    private double[] nodeMinX = new double[0];
+    private double[] nodeMinY = new double[0];
+    private double[] nodeMaxX = new double[0];
+    private double[] nodeMaxY = new double[0];
+    private int[] nodeFirstChild = new int[0];
+    private int[] nodeStart = new int[0];
+    private int[] nodeEnd = new int[0];
+    // Sum of the positions below each node, together with the count (end - start) this gives the center of mass
+    private double[] nodeSumX = new double[0];
+    private double[] nodeSumY = new double[0];
+    private int nodeCount;
+    private int[] stack = new int[64];
+
+    public QuadTree(double worldWidth, double worldHeight) {
+        this(worldWidth, worldHeight, DEFAULT_LEAF_CAPACITY, DEFAULT_MAX_DEPTH);
+    }
+
+    public QuadTree(double worldWidth, double worldHeight, int leafCapacity, int maxDepth) {
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+        this.leafCapacity = Math.max(1, leafCapacity);
+        this.maxDepth = maxDepth;
+    }
+
+    @Override
+    public void rebuild(List<Agent> agents) {
+        this.agents = agents;
+        count = agents.size();
+        ensureItemCapacity(count);
+        nodeCount = 0;
+
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < count; i++) {
+            Agent agent = agents.get(i);
+            itemIndex[i] = i;
+            itemX[i] = agent.getX();
+            itemY[i] = agent.getY();
+
+            minX = Math.min(minX, itemX[i]);
+            minY = Math.min(minY, itemY[i]);
+            maxX = Math.max(maxX, itemX[i]);
+            maxY = Math.max(maxY, itemY[i]);
+        }
+
+        if (count == 0) return;
+        allocateNode(minX, minY, maxX, maxY, 0, count);
+        splitNode(0, 0);
+    }
+
+    private void splitNode(int node, int depth) {
+        int start = nodeStart[node];
+        int end = nodeEnd[node];
+        if (end - start <= leafCapacity || depth >= maxDepth) {
+            double sumX = 0.0, sumY = 0.0;
+            for (int k = start; k < end; k++) {
+                sumX += itemX[k];
+                sumY += itemY[k];
+            }
+            nodeSumX[node] = sumX;
+            nodeSumY[node] = sumY;
+            return;
+        }
+
+        double minX = nodeMinX[node], minY = nodeMinY[node];
+        double maxX = nodeMaxX[node], maxY = nodeMaxY[node];
+        double midX = (minX + maxX) * 0.5;
+        double midY = (minY + maxY) * 0.5;
+
+        // Split the range into the four quadrants: first by y, then each half by x
+        int splitY = partition(start, end, midY, false);
+        int splitLow = partition(start, splitY, midX, true);
+        int splitHigh = partition(splitY, end, midX, true);
+
+        // Children are allocated consecutively so a node only needs the index of the first one
+        int firstChild = nodeCount;
+        ensureNodeCapacity(nodeCount + 4);
+        nodeCount += 4;
+        nodeFirstChild[node] = firstChild;
+
+        fillNode(firstChild, minX, minY, midX, midY, start, splitLow);
+        fillNode(firstChild + 1, midX, minY, maxX, midY, splitLow, splitY);
+        fillNode(firstChild + 2, minX, midY, midX, maxY, splitY, splitHigh);
+        fillNode(firstChild + 3, midX, midY, maxX, maxY, splitHigh, end);
+
+        nodeSumX[node] = 0.0;
+        nodeSumY[node] = 0.0;
+        for (int c = firstChild; c < firstChild + 4; c++) {
+            splitNode(c, depth + 1);
+            nodeSumX[node] += nodeSumX[c];
+            nodeSumY[node] += nodeSumY[c];
+        }
+    }
+
+    // Moves all items below the pivot to the front of the range and returns the first index above it
+    private int partition(int start, int end, double pivot, boolean alongX) {
+        double[] keys = alongX ? itemX : itemY;
+        int i = start;
+        int j = end - 1;
+
+        while (i <= j) {
+            if (keys[i] < pivot) {
+                i++;
+            } else {
+                swap(i, j);
+                j--;
+            }
+        }
+        return i;
+    }
+
+    @Override
+    public void findNeighbors(int agentIndex, double radius, PairVisitor visitor) {
+        stack = scan(agentIndex, radius, false, visitor, stack);
+    }
+
+    @Override
+    public void forEachPair(int from, int to, double radius, PairVisitor visitor) {
+        // Own traversal stack, so disjoint ranges can be visited concurrently
+        int[] pairStack = new int[64];
+        for (int i = from; i < to; i++) {
+            pairStack = scan(i, radius, true, visitor, pairStack);
+        }
+    }
+
+    // Depth-first traversal of all nodes overlapping the query circle; returns the (possibly grown) stack
+    private int[] scan(int agentIndex, double radius, boolean upperOnly, PairVisitor visitor, int[] stack) {
+        if (nodeCount == 0) return stack;
+
+        Agent agent = agents.get(agentIndex);
+        double x = agent.getX();
+        double y = agent.getY();
+        double radiusSquare = radius * radius;
+
+        int top = 0;
+        stack[top++] = 0;
+
+        while (top > 0) {
+            int node = stack[--top];
+
+            double gapX = intervalGap(x, nodeMinX[node], nodeMaxX[node], worldWidth);
+            double gapY = intervalGap(y, nodeMinY[node], nodeMaxY[node], worldHeight);
+            if (gapX * gapX + gapY * gapY > radiusSquare) continue;
+
+            int firstChild = nodeFirstChild[node];
+            if (firstChild >= 0) {
+                if (top + 4 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                for (int c = 0; c < 4; c++) {
+                    stack[top++] = firstChild + c;
+                }
+                continue;
+            }
+
+            for (int k = nodeStart[node]; k < nodeEnd[node]; k++) {
+                int other = itemIndex[k];
+                if (other == agentIndex || (upperOnly && other < agentIndex)) continue;
+
+                double offsetX = SpatialGrid.wrap(itemX[k] - x, worldWidth);
+                double offsetY = SpatialGrid.wrap(itemY[k] - y, worldHeight);
+                double distanceSquare = offsetX * offsetX + offsetY * offsetY;
+                if (distanceSquare > radiusSquare) continue;
+
+                visitor.visit(agentIndex, other, offsetX, offsetY, distanceSquare);
+            }
+        }
+        return stack;
+    }
+
+    // Sums the offsets (other - agent) of all agents within radius into sum and returns how many there were,
+    // the agent itself excluded. A node wholly inside the radius is added exactly from its aggregate.
+    // A node straddling the radius whose size is below theta times its distance counts as one pseudo-agent
+    // at its center of mass (Barnes-Hut criterion), theta = 0 disables that approximation.
+    public int sumOffsets(int agentIndex, double radius, double theta, Vector2D sum) {
+        sum.x = 0.0;
+        sum.y = 0.0;
+        if (nodeCount == 0) return 0;
+
+        Agent agent = agents.get(agentIndex);
+        double x = agent.getX();
+        double y = agent.getY();
+        double radiusSquare = radius * radius;
+        int total = 0;
+
+        int top = 0;
+        stack[top++] = 0;
+
+        while (top > 0) {
+            int node = stack[--top];
+
+            double gapX = intervalGap(x, nodeMinX[node], nodeMaxX[node], worldWidth);
+            double gapY = intervalGap(y, nodeMinY[node], nodeMaxY[node], worldHeight);
+            double gapSquare = gapX * gapX + gapY * gapY;
+            if (gapSquare > radiusSquare) continue;
+
+            int members = nodeEnd[node] - nodeStart[node];
+            if (members == 0) continue;
+
+            // Offsets of the node's box relative to the agent; aggregates are only usable if the box does not
+            // straddle the seam opposite the agent, then all members share the same wrap shift
+            double lowX = SpatialGrid.wrap(nodeMinX[node] - x, worldWidth);
+            double lowY = SpatialGrid.wrap(nodeMinY[node] - y, worldHeight);
+            double highX = lowX + (nodeMaxX[node] - nodeMinX[node]);
+            double highY = lowY + (nodeMaxY[node] - nodeMinY[node]);
+            boolean seam = highX > worldWidth * 0.5 || highY > worldHeight * 0.5;
+
+            if (!seam) {
+                double centerX = nodeSumX[node] / members - nodeMinX[node] + lowX;
+                double centerY = nodeSumY[node] / members - nodeMinY[node] + lowY;
+                double farX = Math.max(Math.abs(lowX), Math.abs(highX));
+                double farY = Math.max(Math.abs(lowY), Math.abs(highY));
+                boolean inside = farX * farX + farY * farY <= radiusSquare;
+
+                double size = Math.max(highX - lowX, highY - lowY);
+                double centerSquare = centerX * centerX + centerY * centerY;
+                boolean distant = gapSquare > 0 && size * size < theta * theta * centerSquare;
+
+                if (inside || distant) {
+                    if (!inside && centerSquare > radiusSquare) continue;
+                    sum.x += centerX * members;
+                    sum.y += centerY * members;
+                    total += members;
+                    continue;
+                }
+            }
+
+            int firstChild = nodeFirstChild[node];
+            if (firstChild >= 0) {
+                if (top + 4 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                for (int c = 0; c < 4; c++) {
+                    stack[top++] = firstChild + c;
+                }
+                continue;
+            }
+
+            for (int k = nodeStart[node]; k < nodeEnd[node]; k++) {
+                double offsetX = SpatialGrid.wrap(itemX[k] - x, worldWidth);
+                double offsetY = SpatialGrid.wrap(itemY[k] - y, worldHeight);
+                if (offsetX * offsetX + offsetY * offsetY <= radiusSquare) {
+                    sum.x += offsetX;
+                    sum.y += offsetY;
+                    total++;
+                }
+            }
+        }
+
+        // The agent itself was counted once with a zero offset, either in a leaf or inside an exact aggregate
+        return total - 1;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    // Distance from value to the interval [min, max] on a periodic axis
+    private static double intervalGap(double value, double min, double max, double period) {
+        if (max - min >= period) return 0.0;
+        if (value >= min && value <= max) return 0.0;
+
+        double toMin = Math.abs(SpatialGrid.wrap(min - value, period));
+        double toMax = Math.abs(SpatialGrid.wrap(max - value, period));
+        return Math.min(toMin, toMax);
+    }
+
+    private void allocateNode(double minX, double minY, double maxX, double maxY, int start, int end) {
+        ensureNodeCapacity(nodeCount + 1);
+        fillNode(nodeCount++, minX, minY, maxX, maxY, start, end);
+    }
+
+    private void fillNode(int node, double minX, double minY, double maxX, double maxY, int start, int end) {
+        nodeMinX[node] = minX;
+        nodeMinY[node] = minY;
+        nodeMaxX[node] = maxX;
+        nodeMaxY[node] = maxY;
+        nodeStart[node] = start;
+        nodeEnd[node] = end;
+        nodeFirstChild[node] = -1;
+    }
+
+    private void swap(int a, int b) {
+        int index = itemIndex[a];
+        itemIndex[a] = itemIndex[b];
+        itemIndex[b] = index;
+
+        double x = itemX[a];
+        itemX[a] = itemX[b];
+        itemX[b] = x;
+
+        double y = itemY[a];
+        itemY[a] = itemY[b];
+        itemY[b] = y;
+    }
+
+    private void ensureItemCapacity(int capacity) {
+        if (itemIndex.length >= capacity) return;
+
+        int newCapacity = Math.max(capacity, itemIndex.length * 2);
+        itemIndex = new int[newCapacity];
+        itemX = new double[newCapacity];
+        itemY = new double[newCapacity];
+    }
+
+    private void ensureNodeCapacity(int capacity) {
+        if (nodeMinX.length >= capacity) return;
+
+        int newCapacity = Math.max(capacity, Math.max(64, nodeMinX.length * 2));
+        nodeMinX = Arrays.copyOf(nodeMinX, newCapacity);
+        nodeMinY = Arrays.copyOf(nodeMinY, newCapacity);
+        nodeMaxX = Arrays.copyOf(nodeMaxX, newCapacity);
+        nodeMaxY = Arrays.copyOf(nodeMaxY, newCapacity);
+        nodeFirstChild = Arrays.copyOf(nodeFirstChild, newCapacity);
+        nodeStart = Arrays.copyOf(nodeStart, newCapacity);
+        nodeEnd = Arrays.copyOf(nodeEnd, newCapacity);
+        nodeSumX = Arrays.copyOf(nodeSumX, newCapacity);
+        nodeSumY = Arrays.copyOf(nodeSumY, newCapacity);
+    }
+}
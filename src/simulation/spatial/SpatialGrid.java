@@ -0,0 +1,255 @@
+package simulation.spatial;
+
+import simulation.agents.Agent;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class SpatialGrid implements PairIndex {
+    private final double worldWidth;
+    private final double worldHeight;
+    private final int columns;
+    private final int rows;
+    private final double cellWidth;
+    private final double cellHeight;
+
+    // Counting-sort layout: the agents of cell c are sortedIndex[cellStart[c] .. cellStart[c + 1])
+    private final int[] cellStart;
+    private final int[] cellCursor;
+    private int[] cellOf = new int[0];
+    private int[] sortedIndex = new int[0];
+    private double[] sortedX = new double[0];
+    private double[] sortedY = new double[0];
+    private List<Agent> agents;
+    private int count;
+
+    // Bounded max-heap for k-nearest queries: the root is the farthest of the current best candidates
+    private int[] heapSlot = new int[0];
+    private double[] heapDistance = new double[0];
+    private int heapSize;
+
+    public SpatialGrid(double cellSize, double worldWidth, double worldHeight) {
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+
+        // Cells must tile the world exactly, otherwise the wrapped neighbor ring misses the seam
+        this.columns = Math.max(1, (int) (worldWidth / cellSize));
+        this.rows = Math.max(1, (int) (worldHeight / cellSize));
+        this.cellWidth = worldWidth / columns;
+        this.cellHeight = worldHeight / rows;
+
+        cellStart = new int[columns * rows + 1];
+        cellCursor = new int[columns * rows];
+    }
+
+    @Override
+    public void rebuild(List<Agent> agents) {
+        this.agents = agents;
+        count = agents.size();
+        ensureCapacity(count);
+        Arrays.fill(cellStart, 0);
+
+        for (int i = 0; i < count; i++) {
+            Agent agent = agents.get(i);
+            int cell = cellIndex(agent.getX(), agent.getY());
+            cellOf[i] = cell;
+            cellStart[cell + 1]++;
+        }
+
+        for (int c = 0; c < columns * rows; c++) {
+            cellStart[c + 1] += cellStart[c];
+            cellCursor[c] = cellStart[c];
+        }
+
+        for (int i = 0; i < count; i++) {
+            Agent agent = agents.get(i);
+            int slot = cellCursor[cellOf[i]]++;
+            sortedIndex[slot] = i;
+            sortedX[slot] = agent.getX();
+            sortedY[slot] = agent.getY();
+        }
+    }
+
+    @Override
+    public void findNeighbors(int agentIndex, double radius, PairVisitor visitor) {
+        scan(agentIndex, radius, false, visitor);
+    }
+
+    @Override
+    public void forEachPair(int from, int to, double radius, PairVisitor visitor) {
+        for (int i = from; i < to; i++) {
+            scan(i, radius, true, visitor);
+        }
+    }
+
+    // Visits the ring of cells around the agent; upperOnly skips partners with a lower index for pair visits
+    private void scan(int agentIndex, double radius, boolean upperOnly, PairVisitor visitor) {
+        Agent agent = agents.get(agentIndex);
+        double x = agent.getX();
+        double y = agent.getY();
+        double radiusSquare = radius * radius;
+
+        int reachX = (int) Math.ceil(radius / cellWidth);
+        int reachY = (int) Math.ceil(radius / cellHeight);
+        int spanX = Math.min(2 * reachX + 1, columns);
+        int spanY = Math.min(2 * reachY + 1, rows);
+
+        // When the ring covers the whole axis, start at 0 so no cell is visited twice
+        int firstColumn = (spanX == columns) ? 0 : column(x) - reachX;
+        int firstRow = (spanY == rows) ? 0 : row(y) - reachY;
+
+        for (int dy = 0; dy < spanY; dy++) {
+            int rowOffset = Math.floorMod(firstRow + dy, rows) * columns;
+
+            for (int dx = 0; dx < spanX; dx++) {
+                int cell = rowOffset + Math.floorMod(firstColumn + dx, columns);
+
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                    int other = sortedIndex[k];
+                    if (other == agentIndex || (upperOnly && other < agentIndex)) continue;
+
+                    double offsetX = wrap(sortedX[k] - x, worldWidth);
+                    double offsetY = wrap(sortedY[k] - y, worldHeight);
+                    double distanceSquare = offsetX * offsetX + offsetY * offsetY;
+                    if (distanceSquare > radiusSquare) continue;
+
+                    visitor.visit(agentIndex, other, offsetX, offsetY, distanceSquare);
+                }
+            }
+        }
+    }
+
+    // Visits the k nearest agents within radius, searching ring by ring outwards from the agent's cell
+    // until no unvisited cell can hold anything closer than the current k-th best
+    public void findNearest(int agentIndex, int k, double radius, PairVisitor visitor) {
+        if (k <= 0) return;
+        if (heapSlot.length < k) {
+            heapSlot = new int[k];
+            heapDistance = new double[k];
+        }
+        heapSize = 0;
+
+        Agent agent = agents.get(agentIndex);
+        double x = agent.getX();
+        double y = agent.getY();
+        double radiusSquare = radius * radius;
+        int centerColumn = column(x);
+        int centerRow = row(y);
+
+        // Offsets inside these windows reach every column/row exactly once on the wrapped grid
+        int minDx = -((columns - 1) / 2), maxDx = columns / 2;
+        int minDy = -((rows - 1) / 2), maxDy = rows / 2;
+        int maxRing = Math.max(Math.max(-minDx, maxDx), Math.max(-minDy, maxDy));
+        double cellMin = Math.min(cellWidth, cellHeight);
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            double reach = Math.max(0, ring - 1) * cellMin;
+            double reachSquare = reach * reach;
+            if (reachSquare > radiusSquare) break;
+            if (heapSize == k && reachSquare >= heapDistance[0]) break;
+
+            for (int dy = -ring; dy <= ring; dy++) {
+                if (dy < minDy || dy > maxDy) continue;
+                int rowOffset = Math.floorMod(centerRow + dy, rows) * columns;
+                boolean fullRow = Math.abs(dy) == ring;
+                int step = fullRow ? 1 : 2 * ring;
+
+                for (int dx = -ring; dx <= ring; dx += step) {
+                    if (dx < minDx || dx > maxDx) continue;
+                    int cell = rowOffset + Math.floorMod(centerColumn + dx, columns);
+
+                    for (int slot = cellStart[cell]; slot < cellStart[cell + 1]; slot++) {
+                        if (sortedIndex[slot] == agentIndex) continue;
+
+                        double offsetX = wrap(sortedX[slot] - x, worldWidth);
+                        double offsetY = wrap(sortedY[slot] - y, worldHeight);
+                        double distanceSquare = offsetX * offsetX + offsetY * offsetY;
+                        if (distanceSquare <= radiusSquare) {
+                            offerNearest(slot, distanceSquare, k);
+                        }
+                    }
+                }
+            }
+        }
+
+        for (int h = 0; h < heapSize; h++) {
+            int slot = heapSlot[h];
+            double offsetX = wrap(sortedX[slot] - x, worldWidth);
+            double offsetY = wrap(sortedY[slot] - y, worldHeight);
+            visitor.visit(agentIndex, sortedIndex[slot], offsetX, offsetY, heapDistance[h]);
+        }
+    }
+
+    private void offerNearest(int slot, double distanceSquare, int k) {
+        if (heapSize < k) {
+            int child = heapSize++;
+            while (child > 0) {
+                int parent = (child - 1) / 2;
+                if (heapDistance[parent] >= distanceSquare) break;
+                heapSlot[child] = heapSlot[parent];
+                heapDistance[child] = heapDistance[parent];
+                child = parent;
+            }
+            heapSlot[child] = slot;
+            heapDistance[child] = distanceSquare;
+            return;
+        }
+
+        if (distanceSquare >= heapDistance[0]) return;
+
+        // Replace the farthest candidate and sift it down
+        int parent = 0;
+        while (true) {
+            int child = 2 * parent + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && heapDistance[child + 1] > heapDistance[child]) child++;
+            if (heapDistance[child] <= distanceSquare) break;
+            heapSlot[parent] = heapSlot[child];
+            heapDistance[parent] = heapDistance[child];
+            parent = child;
+        }
+        heapSlot[parent] = slot;
+        heapDistance[parent] = distanceSquare;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    // Shortest signed difference on a periodic axis
+    public static double wrap(double delta, double period) {
+        if (delta > period * 0.5) return delta - period;
+        if (delta < -period * 0.5) return delta + period;
+        return delta;
+    }
+
+    private int column(double x) {
+        return Math.floorMod((int) Math.floor(x / cellWidth), columns);
+    }
+
+    private int row(double y) {
+        return Math.floorMod((int) Math.floor(y / cellHeight), rows);
+    }
+
+    private int cellIndex(double x, double y) {
+        return row(y) * columns + column(x);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (sortedIndex.length >= capacity) return;
+
+        int newCapacity = Math.max(capacity, sortedIndex.length * 2);
+        cellOf = new int[newCapacity];
+        sortedIndex = new int[newCapacity];
+        sortedX = new double[newCapacity];
+        sortedY = new double[newCapacity];
+    }
+}
@@ -0,0 +1,421 @@
+package simulation.spatial;
+
+import simulation.agents.AgentStore;
+
+import java.util.Arrays;
+
+// Broad phase for hard contacts. Agents are split into horizontal bands and kept sorted by the left edge of
+// their x interval inside each band; since the order barely changes between frames, re-sorting is an
+// insertion sort plus a merge of the few agents that changed band. The sweep only compares agents of the
+// same or adjacent bands whose x intervals overlap. Both axes wrap.
+// Everything is kept in sorted order: each frame gathers the new positions into the slots of the last
+// frame's order and sorts those slots in place, so the sweep reads one contiguous record per agent.
+public class SweepAndPrune {
+    // Interleaved record per sorted slot: left edge, center and radius
+    private static final int STRIDE = 4;
+    private static final int MIN_X = 0, X = 1, Y = 2, RADIUS = 3;
+
+    private final double worldWidth;
+    private final double worldHeight;
+    private final int bands;
+    private final double bandHeight;
+
+    // Sorted by band, then left edge; band b owns slots bandStart[b] .. bandStart[b + 1]. order holds the
+    // agent index of each slot, slotBand the band its current position falls into.
+    private double[] slots = new double[0];
+    private int[] order = new int[0];
+    private int[] slotBand = new int[0];
+    private int[] bandStart;
+    private final int[] bandCursor;
+    private int count = -1;
+    private int reachBands;
+
+    // Targets of the band scatter, swapped with the above, and the buffers of the run merge
+    private double[] nextSlots = new double[0];
+    private int[] nextOrder = new int[0];
+    private int[] nextSlotBand = new int[0];
+    private int[] nextBandStart;
+    private double[] mergeSlots = new double[0];
+    private int[] mergeOrder = new int[0];
+    private int[] mergeBand = new int[0];
+    private long[] sortKeys = new long[0];
+
+    // Statistics of the last update and sweep
+    private long swapCount;
+    private long bandChangeCount;
+    private long overlapCount;
+    private long contactCount;
+    private long sortNanos;
+    private long sweepNanos;
+
+    // bandHeight should be about two agent radii: smaller bands are cheaper to sweep, but more agents
+    // change band every frame
+    public SweepAndPrune(double bandHeight, double worldWidth, double worldHeight) {
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+
+        // Bands must tile the world exactly so the wrapped band below the last one is band 0
+        this.bands = Math.max(1, (int) (worldHeight / bandHeight));
+        this.bandHeight = worldHeight / bands;
+
+        bandStart = new int[bands + 1];
+        nextBandStart = new int[bands + 1];
+        bandCursor = new int[bands];
+    }
+
+    public void update(AgentStore store) {
+        long start = System.nanoTime();
+
+        // Growing the buffers drops the old order; within capacity, spawned and despawned agents are patched in
+        int previous = count;
+        boolean fromScratch = previous < 0 || store.getCount() > order.length;
+        count = store.getCount();
+        ensureCapacity(count);
+        if (fromScratch) {
+            for (int k = 0; k < count; k++) {
+                order[k] = k;
+            }
+            Arrays.fill(bandStart, 1, bands + 1, count);
+            bandStart[0] = 0;
+        } else if (count != previous) {
+            adoptCount(previous);
+        }
+
+        // New positions into the slots of the last order
+        double[] x = store.x, y = store.y;
+        double maxRadius = 0.0;
+        for (int k = 0; k < count; k++) {
+            int index = order[k];
+            double radius = store.getRadius(index);
+            int base = k * STRIDE;
+            slots[base + MIN_X] = x[index] - radius;
+            slots[base + X] = x[index];
+            slots[base + Y] = y[index];
+            slots[base + RADIUS] = radius;
+            slotBand[k] = Math.floorMod((int) Math.floor(y[index] / bandHeight), bands);
+            maxRadius = Math.max(maxRadius, radius);
+        }
+        reachBands = (int) Math.ceil(2.0 * maxRadius / bandHeight);
+
+        swapCount = 0;
+        if (fromScratch) {
+            sortFromScratch();
+        } else {
+            // Re-sort every old band by the new positions; it holds mostly the same agents as before
+            for (int b = 0; b < bands; b++) {
+                insertionSort(bandStart[b], bandStart[b + 1]);
+            }
+        }
+        scatter();
+
+        sortNanos = System.nanoTime() - start;
+    }
+
+    // Stable scatter into the new bands: each new band receives one sorted run per old band it draws from
+    private void scatter() {
+        bandChangeCount = 0;
+        Arrays.fill(nextBandStart, 0);
+        for (int b = 0; b < bands; b++) {
+            for (int k = bandStart[b]; k < bandStart[b + 1]; k++) {
+                if (slotBand[k] != b) bandChangeCount++;
+                nextBandStart[slotBand[k] + 1]++;
+            }
+        }
+        if (bandChangeCount == 0) return;
+
+        for (int b = 0; b < bands; b++) {
+            nextBandStart[b + 1] += nextBandStart[b];
+            bandCursor[b] = nextBandStart[b];
+        }
+        for (int k = 0; k < count; k++) {
+            int target = bandCursor[slotBand[k]]++;
+            copySlot(slots, k, nextSlots, target);
+            nextOrder[target] = order[k];
+            nextSlotBand[target] = slotBand[k];
+        }
+
+        double[] swapSlots = slots;
+        slots = nextSlots;
+        nextSlots = swapSlots;
+        int[] swapOrder = order;
+        order = nextOrder;
+        nextOrder = swapOrder;
+        int[] swapBand = slotBand;
+        slotBand = nextSlotBand;
+        nextSlotBand = swapBand;
+        int[] swapStart = bandStart;
+        bandStart = nextBandStart;
+        nextBandStart = swapStart;
+
+        for (int b = 0; b < bands; b++) {
+            mergeRuns(bandStart[b], bandStart[b + 1]);
+        }
+    }
+
+    // Visits every pair of touching agents once, with the offset from first to second.
+    // Unlike PairIndex.forEachPair, first is not necessarily the lower index.
+    public void forEachContact(PairVisitor visitor) {
+        long start = System.nanoTime();
+        overlapCount = 0;
+        contactCount = 0;
+
+        for (int b = 0; b < bands; b++) {
+            sweepBand(bandStart[b], bandStart[b + 1], visitor);
+
+            // Every unordered pair of bands once, also when few bands wrap onto each other
+            for (int d = 1; d <= reachBands && 2 * d <= bands; d++) {
+                if (2 * d == bands && b >= d) continue;
+                int other = (b + d) % bands;
+                sweepBands(bandStart[b], bandStart[b + 1], bandStart[other], bandStart[other + 1], visitor);
+            }
+        }
+
+        sweepNanos = System.nanoTime() - start;
+    }
+
+    private double minX(int k) {
+        return slots[k * STRIDE + MIN_X];
+    }
+
+    private double maxX(int k) {
+        return slots[k * STRIDE + X] + slots[k * STRIDE + RADIUS];
+    }
+
+    private void sweepBand(int from, int to, PairVisitor visitor) {
+        for (int k = from; k < to; k++) {
+            double maxX = maxX(k);
+            for (int m = k + 1; m < to && minX(m) <= maxX; m++) {
+                test(k, m, visitor);
+            }
+            sweepSeam(k, from, to, visitor);
+        }
+    }
+
+    // Two sorted bands in one pass: whichever interval starts first is compared with the other band's
+    // intervals that start before it ends
+    private void sweepBands(int fromA, int toA, int fromB, int toB, PairVisitor visitor) {
+        int a = fromA, b = fromB;
+        while (a < toA && b < toB) {
+            if (minX(a) <= minX(b)) {
+                double maxX = maxX(a);
+                for (int m = b; m < toB && minX(m) <= maxX; m++) {
+                    test(a, m, visitor);
+                }
+                a++;
+            } else {
+                double maxX = maxX(b);
+                for (int m = a; m < toA && minX(m) <= maxX; m++) {
+                    test(b, m, visitor);
+                }
+                b++;
+            }
+        }
+
+        for (int k = fromA; k < toA; k++) {
+            sweepSeam(k, fromB, toB, visitor);
+        }
+        for (int k = fromB; k < toB; k++) {
+            sweepSeam(k, fromA, toA, visitor);
+        }
+    }
+
+    // Intervals reaching past the right edge continue at the start of the band
+    private void sweepSeam(int k, int from, int to, PairVisitor visitor) {
+        double maxX = maxX(k);
+        if (from == to || maxX - worldWidth < minX(from)) return;
+
+        for (int m = from; m < to && minX(m) + worldWidth <= maxX; m++) {
+            // Pairs overlapping directly were already found by the direct sweep
+            if (m == k || (minX(m) <= maxX && minX(k) <= maxX(m))) continue;
+            test(k, m, visitor);
+        }
+    }
+
+    private void test(int first, int second, PairVisitor visitor) {
+        overlapCount++;
+
+        int a = first * STRIDE, b = second * STRIDE;
+        double offsetX = SpatialGrid.wrap(slots[b + X] - slots[a + X], worldWidth);
+        double offsetY = SpatialGrid.wrap(slots[b + Y] - slots[a + Y], worldHeight);
+        double reach = slots[a + RADIUS] + slots[b + RADIUS];
+        double distanceSquare = offsetX * offsetX + offsetY * offsetY;
+        if (distanceSquare >= reach * reach) return;
+
+        contactCount++;
+        visitor.visit(order[first], order[second], offsetX, offsetY, distanceSquare);
+    }
+
+    private void insertionSort(int from, int to) {
+        for (int k = from + 1; k < to; k++) {
+            double minX = minX(k);
+            if (minX(k - 1) <= minX) continue;
+
+            int slot = k;
+            copySlot(slots, k, mergeSlots, 0);
+            int index = order[k], band = slotBand[k];
+            while (slot > from && minX(slot - 1) > minX) {
+                slot--;
+            }
+            System.arraycopy(slots, slot * STRIDE, slots, (slot + 1) * STRIDE, (k - slot) * STRIDE);
+            System.arraycopy(order, slot, order, slot + 1, k - slot);
+            System.arraycopy(slotBand, slot, slotBand, slot + 1, k - slot);
+            copySlot(mergeSlots, 0, slots, slot);
+            order[slot] = index;
+            slotBand[slot] = band;
+            swapCount += k - slot;
+        }
+    }
+
+    // Merges the sorted runs a band received from different old bands, usually one to three
+    private void mergeRuns(int from, int to) {
+        int runEnd = from + 1;
+        while (runEnd < to && minX(runEnd - 1) <= minX(runEnd)) runEnd++;
+
+        while (runEnd < to) {
+            int nextEnd = runEnd + 1;
+            while (nextEnd < to && minX(nextEnd - 1) <= minX(nextEnd)) nextEnd++;
+
+            // Merge slots from .. runEnd with runEnd .. nextEnd
+            int leftLength = runEnd - from;
+            System.arraycopy(slots, from * STRIDE, mergeSlots, 0, leftLength * STRIDE);
+            System.arraycopy(order, from, mergeOrder, 0, leftLength);
+            System.arraycopy(slotBand, from, mergeBand, 0, leftLength);
+            int left = 0, right = runEnd, target = from;
+            while (left < leftLength && right < nextEnd) {
+                if (minX(right) < mergeSlots[left * STRIDE + MIN_X]) {
+                    moveSlot(right++, target++);
+                } else {
+                    takeMerged(left++, target++);
+                }
+            }
+            while (left < leftLength) {
+                takeMerged(left++, target++);
+            }
+            runEnd = nextEnd;
+        }
+    }
+
+    private static void copySlot(double[] source, int from, double[] target, int to) {
+        int a = from * STRIDE, b = to * STRIDE;
+        target[b + MIN_X] = source[a + MIN_X];
+        target[b + X] = source[a + X];
+        target[b + Y] = source[a + Y];
+        target[b + RADIUS] = source[a + RADIUS];
+    }
+
+    private void moveSlot(int from, int to) {
+        copySlot(slots, from, slots, to);
+        order[to] = order[from];
+        slotBand[to] = slotBand[from];
+    }
+
+    private void takeMerged(int from, int to) {
+        copySlot(mergeSlots, from, slots, to);
+        order[to] = mergeOrder[from];
+        slotBand[to] = mergeBand[from];
+    }
+
+    // Primitive sort of all slots on the rounded left edge with the slot in the lower bits, all in band 0 of
+    // the old layout; the scatter and merge distribute it over the bands
+    private void sortFromScratch() {
+        if (sortKeys.length < count) {
+            sortKeys = new long[order.length];
+        }
+        long[] keys = sortKeys;
+        for (int k = 0; k < count; k++) {
+            // Shifted into positive range, where the float bit pattern orders like the value
+            float key = (float) (minX(k) + worldWidth);
+            keys[k] = ((long) Float.floatToIntBits(key) << 32) | k;
+        }
+        Arrays.sort(keys, 0, count);
+
+        for (int target = 0; target < count; target++) {
+            int k = (int) keys[target];
+            copySlot(slots, k, nextSlots, target);
+            nextOrder[target] = order[k];
+            nextSlotBand[target] = slotBand[k];
+        }
+        System.arraycopy(nextSlots, 0, slots, 0, count * STRIDE);
+        System.arraycopy(nextOrder, 0, order, 0, count);
+        System.arraycopy(nextSlotBand, 0, slotBand, 0, count);
+        // The rounded keys may leave ties slightly out of order
+        insertionSort(0, count);
+    }
+
+    // After agents were removed (the last one moved into the hole) or appended: drops indices past the new count
+    // and appends the new ones to the last band. The indices that now name a different agent are out of place
+    // like agents that moved, the re-sort and scatter of update fix both.
+    private void adoptCount(int previous) {
+        int k = 0;
+        for (int b = 0; b < bands; b++) {
+            int from = bandStart[b], to = bandStart[b + 1];
+            bandStart[b] = k;
+            for (int m = from; m < to; m++) {
+                if (order[m] < count) order[k++] = order[m];
+            }
+        }
+        for (int index = previous; index < count; index++) {
+            order[k++] = index;
+        }
+        bandStart[bands] = k;
+    }
+
+    // Keeps the sorted order valid after the store was permuted (see MortonOrder)
+    public void reorder(int[] permutation, int count) {
+        if (count != this.count) return;
+
+        for (int i = 0; i < count; i++) {
+            nextOrder[permutation[i]] = i;
+        }
+        for (int k = 0; k < count; k++) {
+            order[k] = nextOrder[order[k]];
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (order.length >= capacity) return;
+
+        int newCapacity = Math.max(capacity, order.length * 2);
+        slots = new double[newCapacity * STRIDE];
+        order = new int[newCapacity];
+        slotBand = new int[newCapacity];
+        nextSlots = new double[newCapacity * STRIDE];
+        nextOrder = new int[newCapacity];
+        nextSlotBand = new int[newCapacity];
+        mergeSlots = new double[newCapacity * STRIDE];
+        mergeOrder = new int[newCapacity];
+        mergeBand = new int[newCapacity];
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getBands() {
+        return bands;
+    }
+
+    public long getSwapCount() {
+        return swapCount;
+    }
+
+    public long getBandChangeCount() {
+        return bandChangeCount;
+    }
+
+    public long getOverlapCount() {
+        return overlapCount;
+    }
+
+    public long getContactCount() {
+        return contactCount;
+    }
+
+    public long getSortNanos() {
+        return sortNanos;
+    }
+
+    public long getSweepNanos() {
+        return sweepNanos;
+    }
+}
@@ -0,0 +1,246 @@
+package simulation.spatial;
+
+import simulation.agents.Agent;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class VerletNeighborList implements PairIndex {
+    private final PairIndex source;
+    private final double skin;
+    private final double worldWidth;
+    private final double worldHeight;
+
+    // Candidates within SWARM_DISTANCE + skin, the ones of agent i are candidateIndex[candidateStart[i] .. candidateStart[i + 1])
+    private int[] candidateStart = new int[1];
+    private int[] candidateIndex = new int[0];
+    private int[] candidateCursor = new int[0];
+    private double[] referenceX = new double[0];
+    private double[] referenceY = new double[0];
+    private List<Agent> agents;
+    private int builtCount = -1;
+
+    // Pairs reported by the source index during a rebuild
+    private int[] pairFirst = new int[0];
+    private int[] pairSecond = new int[0];
+    private int pairCount;
+    private final PairVisitor pairCollector = (first, second, offsetX, offsetY, distanceSquare) -> addPair(first, second);
+
+    // Scratch buffers for reorder
+    private int[] inverseOrder = new int[0];
+    private int[] reorderedStart = new int[1];
+    private int[] reorderedIndex = new int[0];
+    private double[] reorderedX = new double[0];
+    private double[] reorderedY = new double[0];
+
+    // Rebuild statistics for tuning the skin
+    private long totalRebuilds;
+    private int rebuildsInWindow;
+    private double windowTime;
+    private double rebuildsPerSecond;
+
+    public VerletNeighborList(PairIndex source, double skin, double worldWidth, double worldHeight) {
+        this.source = source;
+        this.skin = skin;
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+    }
+
+    @Override
+    public void rebuild(List<Agent> agents) {
+        this.agents = agents;
+
+        if (agents.size() != builtCount || exceedsHalfSkin()) {
+            buildCandidates();
+        }
+    }
+
+    // Same as rebuild, additionally advancing the rebuilds-per-second window
+    public void update(List<Agent> agents, double deltaTime) {
+        rebuild(agents);
+
+        windowTime += deltaTime;
+        if (windowTime >= 1.0) {
+            rebuildsPerSecond = rebuildsInWindow / windowTime;
+            rebuildsInWindow = 0;
+            windowTime = 0.0;
+        }
+    }
+
+    // Only valid for radius <= SWARM_DISTANCE, the lists hold nothing beyond that plus the skin
+    @Override
+    public void findNeighbors(int agentIndex, double radius, PairVisitor visitor) {
+        Agent agent = agents.get(agentIndex);
+        double radiusSquare = radius * radius;
+
+        for (int k = candidateStart[agentIndex]; k < candidateStart[agentIndex + 1]; k++) {
+            int j = candidateIndex[k];
+            Agent other = agents.get(j);
+            double offsetX = SpatialGrid.wrap(other.getX() - agent.getX(), worldWidth);
+            double offsetY = SpatialGrid.wrap(other.getY() - agent.getY(), worldHeight);
+            double distanceSquare = offsetX * offsetX + offsetY * offsetY;
+            if (distanceSquare <= radiusSquare) {
+                visitor.visit(agentIndex, j, offsetX, offsetY, distanceSquare);
+            }
+        }
+    }
+
+    @Override
+    public void forEachPair(int from, int to, double radius, PairVisitor visitor) {
+        double radiusSquare = radius * radius;
+
+        for (int i = from; i < to; i++) {
+            Agent agent = agents.get(i);
+
+            for (int k = candidateStart[i]; k < candidateStart[i + 1]; k++) {
+                int j = candidateIndex[k];
+                if (j < i) continue;
+
+                Agent other = agents.get(j);
+                double offsetX = SpatialGrid.wrap(other.getX() - agent.getX(), worldWidth);
+                double offsetY = SpatialGrid.wrap(other.getY() - agent.getY(), worldHeight);
+                double distanceSquare = offsetX * offsetX + offsetY * offsetY;
+                if (distanceSquare <= radiusSquare) {
+                    visitor.visit(i, j, offsetX, offsetY, distanceSquare);
+                }
+            }
+        }
+    }
+
+    // Moves the cached lists along with their agents, so a locality re-sort does not force a rebuild
+    @Override
+    public void reorder(int[] order, int count) {
+        if (count != builtCount) return;
+
+        if (inverseOrder.length < count) {
+            inverseOrder = new int[count];
+            reorderedStart = new int[count + 1];
+            reorderedX = new double[count];
+            reorderedY = new double[count];
+        }
+        if (reorderedIndex.length < candidateStart[count]) {
+            reorderedIndex = new int[candidateIndex.length];
+        }
+
+        for (int i = 0; i < count; i++) {
+            inverseOrder[order[i]] = i;
+        }
+
+        int cursor = 0;
+        for (int i = 0; i < count; i++) {
+            int old = order[i];
+            reorderedStart[i] = cursor;
+            for (int k = candidateStart[old]; k < candidateStart[old + 1]; k++) {
+                reorderedIndex[cursor++] = inverseOrder[candidateIndex[k]];
+            }
+            reorderedX[i] = referenceX[old];
+            reorderedY[i] = referenceY[old];
+        }
+        reorderedStart[count] = cursor;
+
+        int[] swapStart = candidateStart;
+        candidateStart = reorderedStart;
+        reorderedStart = swapStart;
+
+        int[] swapIndex = candidateIndex;
+        candidateIndex = reorderedIndex;
+        reorderedIndex = swapIndex;
+
+        double[] swapX = referenceX;
+        referenceX = reorderedX;
+        reorderedX = swapX;
+
+        double[] swapY = referenceY;
+        referenceY = reorderedY;
+        reorderedY = swapY;
+    }
+
+    private boolean exceedsHalfSkin() {
+        double limitSquare = skin * skin * 0.25;
+
+        for (int i = 0; i < builtCount; i++) {
+            Agent agent = agents.get(i);
+            double dx = SpatialGrid.wrap(agent.getX() - referenceX[i], worldWidth);
+            double dy = SpatialGrid.wrap(agent.getY() - referenceY[i], worldHeight);
+            if (dx * dx + dy * dy > limitSquare) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void buildCandidates() {
+        int count = agents.size();
+        source.rebuild(agents);
+
+        double radius = 0.0;
+        for (int i = 0; i < count; i++) {
+            radius = Math.max(radius, agents.get(i).getSwarmDistance());
+        }
+
+        pairCount = 0;
+        source.forEachPair(0, count, radius + skin, pairCollector);
+
+        if (referenceX.length < count) {
+            referenceX = new double[count];
+            referenceY = new double[count];
+        }
+        if (candidateStart.length < count + 1) {
+            candidateStart = new int[count + 1];
+        }
+        if (candidateCursor.length < count) {
+            candidateCursor = new int[count];
+        }
+        if (candidateIndex.length < pairCount * 2) {
+            candidateIndex = new int[pairCount * 2];
+        }
+
+        // Counting sort of the pairs into both agents' rows
+        Arrays.fill(candidateStart, 0, count + 1, 0);
+        for (int p = 0; p < pairCount; p++) {
+            candidateStart[pairFirst[p] + 1]++;
+            candidateStart[pairSecond[p] + 1]++;
+        }
+        for (int i = 0; i < count; i++) {
+            candidateStart[i + 1] += candidateStart[i];
+            candidateCursor[i] = candidateStart[i];
+        }
+        for (int p = 0; p < pairCount; p++) {
+            candidateIndex[candidateCursor[pairFirst[p]]++] = pairSecond[p];
+            candidateIndex[candidateCursor[pairSecond[p]]++] = pairFirst[p];
+        }
+
+        for (int i = 0; i < count; i++) {
+            Agent agent = agents.get(i);
+            referenceX[i] = agent.getX();
+            referenceY[i] = agent.getY();
+        }
+
+        builtCount = count;
+        totalRebuilds++;
+        rebuildsInWindow++;
+    }
+
+    private void addPair(int first, int second) {
+        if (pairCount == pairFirst.length) {
+            int newCapacity = Math.max(1024, pairFirst.length * 2);
+            pairFirst = Arrays.copyOf(pairFirst, newCapacity);
+            pairSecond = Arrays.copyOf(pairSecond, newCapacity);
+        }
+        pairFirst[pairCount] = first;
+        pairSecond[pairCount] = second;
+        pairCount++;
+    }
+
+    public double getSkin() {
+        return skin;
+    }
+
+    public long getTotalRebuilds() {
+        return totalRebuilds;
+    }
+
+    public double getRebuildsPerSecond() {
+        return rebuildsPerSecond;
+    }
+}